@@ -0,0 +1,95 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a new order should be accepted, based on how long it would wait.
+ * The kitchen's drain rate is estimated from the spacing of recent deliveries (an
+ * exponentially weighted moving average over busy periods only), and an order's wait is
+ * estimated as queue depth times that spacing. As in CoDel, a wait above the target is
+ * tolerated for a grace interval so short bursts are absorbed; if it stays above target for
+ * the whole interval, orders are turned away until the estimate drops back under it.
+ * Every call is a handful of atomic reads and at most a few compare-and-set operations:
+ * no locks and no loops over the queue.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class AdmissionController {
+
+    private static final double SMOOTHING = 0.2; // Weight of the newest delivery interval
+
+    private final long targetWaitNanos;
+    private final long graceNanos;
+
+    private final AtomicLong lastDeliveryNanos = new AtomicLong();
+    private final AtomicLong deliveryIntervalBits = new AtomicLong(); // Average interval as double bits, 0 if unknown
+    private final AtomicLong aboveTargetSince = new AtomicLong();     // 0 while the estimate is under target
+
+    /**
+     * Constructs a controller.
+     *
+     * @param targetWaitMillis the longest estimated wait new orders are normally accepted with
+     * @param graceMillis      how long the estimate may stay above target before orders are turned away
+     */
+    public AdmissionController(long targetWaitMillis, long graceMillis) {
+        this.targetWaitNanos = targetWaitMillis * 1_000_000L;
+        this.graceNanos = graceMillis * 1_000_000L;
+    }
+
+    /**
+     * Records that an order left the queue for delivery.
+     *
+     * @param nowNanos       the current time in nanoseconds
+     * @param remainingDepth the number of orders still queued afterwards
+     */
+    public void recordDelivery(long nowNanos, int remainingDepth) {
+        // An empty queue means the kitchen may sit idle; the next gap says nothing about its speed
+        long previous = lastDeliveryNanos.getAndSet(remainingDepth == 0 ? 0 : stamp(nowNanos));
+        if (previous == 0) return;
+
+        double interval = nowNanos - previous;
+        while (true) {
+            long bits = deliveryIntervalBits.get();
+            double average = bits == 0 ? interval : Double.longBitsToDouble(bits);
+            double updated = bits == 0 ? interval : average + SMOOTHING * (interval - average);
+            if (deliveryIntervalBits.compareAndSet(bits, Double.doubleToRawLongBits(updated))) return;
+        }
+    }
+
+    /**
+     * Estimates how long a new order would wait behind the current queue.
+     *
+     * @param queueDepth the number of orders queued
+     * @return the estimated wait in nanoseconds, or 0 if no drain rate is known yet
+     */
+    public long estimateWaitNanos(int queueDepth) {
+        long bits = deliveryIntervalBits.get();
+        if (bits == 0) return 0;
+        return (long) (queueDepth * Double.longBitsToDouble(bits));
+    }
+
+    /**
+     * Decides whether to accept a new order.
+     *
+     * @param queueDepth the number of orders queued
+     * @param nowNanos   the current time in nanoseconds
+     * @return true to accept the order, false to turn it away
+     */
+    public boolean admit(int queueDepth, long nowNanos) {
+        if (estimateWaitNanos(queueDepth) <= targetWaitNanos) {
+            if (aboveTargetSince.get() != 0) aboveTargetSince.set(0);
+            return true;
+        }
+
+        long since = aboveTargetSince.get();
+        if (since == 0) {
+            aboveTargetSince.compareAndSet(0, stamp(nowNanos));
+            return true;
+        }
+        return nowNanos - since < graceNanos;
+    }
+
+    // Keeps a real timestamp from colliding with the 0 used for "unset"
+    private static long stamp(long nanos) {
+        return nanos == 0 ? 1 : nanos;
+    }
+}
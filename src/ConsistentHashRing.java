@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+/**
+ * Consistent hash ring mapping customer contact numbers to named partitions.
+ * Each partition is placed on the ring at several virtual points so load stays even
+ * and adding or removing a partition only moves the keys next to its points.
+ * Lookups binary search an immutable sorted snapshot of the ring, so routing takes
+ * no locks and allocates nothing.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class ConsistentHashRing {
+
+    private final int virtualNodes;
+    private final LinkedHashSet<String> nodes = new LinkedHashSet<>();
+
+    // Sorted ring points and the partition owning each, replaced together on membership change
+    private volatile Snapshot snapshot = new Snapshot(new int[0], new String[0]);
+
+    /**
+     * Constructs an empty ring.
+     *
+     * @param virtualNodes the number of ring points given to each partition
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual node count must be positive.");
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Adds a partition to the ring.
+     *
+     * @param node the partition name
+     * @return true if the partition was not already on the ring
+     */
+    public synchronized boolean addNode(String node) {
+        if (!nodes.add(node)) return false;
+        rebuild();
+        return true;
+    }
+
+    /**
+     * Removes a partition from the ring.
+     *
+     * @param node the partition name
+     * @return true if the partition was on the ring
+     */
+    public synchronized boolean removeNode(String node) {
+        if (!nodes.remove(node)) return false;
+        rebuild();
+        return true;
+    }
+
+    /**
+     * Returns the partition owning the given contact number.
+     *
+     * @param contactNumber the customer's contact number
+     * @return the owning partition name, or null if the ring is empty
+     */
+    public String nodeFor(int contactNumber) {
+        Snapshot current = snapshot;
+        int[] points = current.points;
+        if (points.length == 0) return null;
+
+        int index = Arrays.binarySearch(points, mix(contactNumber));
+        if (index < 0) index = -index - 1;
+        if (index == points.length) index = 0; // Wrap around the ring
+
+        return current.owners[index];
+    }
+
+    /**
+     * Returns the partitions currently on the ring, in the order they were added.
+     *
+     * @return a copy of the partition names
+     */
+    public synchronized ArrayList<String> getNodes() {
+        return new ArrayList<>(nodes);
+    }
+
+    // Recomputes the sorted ring points for the current partitions
+    private void rebuild() {
+        int total = nodes.size() * virtualNodes;
+        long[] packed = new long[total];
+
+        int i = 0;
+        ArrayList<String> names = new ArrayList<>(nodes);
+        for (int n = 0; n < names.size(); n++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                int point = mix((names.get(n) + "#" + v).hashCode());
+                // Point in the high bits, partition index in the low bits, so sorting keeps them together
+                packed[i++] = ((long) point << 32) | n;
+            }
+        }
+        Arrays.sort(packed);
+
+        int[] points = new int[total];
+        String[] owners = new String[total];
+        for (i = 0; i < total; i++) {
+            points[i] = (int) (packed[i] >> 32);
+            owners[i] = names.get((int) packed[i]);
+        }
+        snapshot = new Snapshot(points, owners);
+    }
+
+    // Murmur3 finalizer, spreads nearby contact numbers around the ring
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Immutable view of the ring used by lookups.
+     */
+    private static final class Snapshot {
+        private final int[] points;
+        private final String[] owners;
+
+        private Snapshot(int[] points, String[] owners) {
+            this.points = points;
+            this.owners = owners;
+        }
+    }
+}
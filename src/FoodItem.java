@@ -1,6 +1,8 @@
 /**
  * Abstract base class for all food items (Pizza, Pasta).
- * Provides base price, meal type classification, and price handling.
+ * An item is its FoodItemRegistry type id and a bitset of its options, such as toppings;
+ * its price and meal type are looked up in its type's menu in the registry, the same way
+ * for every subclass.
  * Implements FreeInterface for promotional discounts.
  *
  * @author Nashmia Shakeel
@@ -12,8 +14,51 @@ public abstract class FoodItem implements FreeInterface {
     private static final double BASE_PRICE = 11.50;
 
     // Fields
+    private final int typeId;
+    private final int options;
     private FoodType foodType;
     private double price;
+    private boolean free;
+
+    /**
+     * Constructs a food item of a registered type with no options.
+     *
+     * @param typeId the item's id in FoodItemRegistry
+     */
+    protected FoodItem(int typeId) {
+        this(typeId, 0);
+    }
+
+    /**
+     * Constructs a food item of a registered type, priced and classified from its menu.
+     *
+     * @param typeId  the item's id in FoodItemRegistry
+     * @param options the bitset of the item's options, by their index in the type's menu
+     */
+    protected FoodItem(int typeId, int options) {
+        this.typeId = typeId;
+        this.options = options;
+        calculatePrice();
+        fixFoodType();
+    }
+
+    /**
+     * Returns the item's type id, which indexes its entry in FoodItemRegistry.
+     *
+     * @return the type id
+     */
+    public final int getTypeId() {
+        return typeId;
+    }
+
+    /**
+     * Returns the bitset of the item's options, by their index in its type's menu.
+     *
+     * @return the option bits
+     */
+    public final int getOptions() {
+        return options;
+    }
 
     /**
      * Returns the base price of all food items.
@@ -51,6 +96,23 @@ public abstract class FoodItem implements FreeInterface {
         this.price = price;
     }
 
+    /**
+     * Checks whether this item was added for free by a promotion.
+     *
+     * @return true if the item is a promotional free item
+     */
+    public boolean isFree() {
+        return free;
+    }
+
+    /**
+     * Marks this item as a promotional free item with no cost.
+     */
+    public void markFree() {
+        this.free = true;
+        this.price = 0.0;
+    }
+
     /**
      * Gets the food type
      * @return the food type
@@ -60,16 +122,39 @@ public abstract class FoodItem implements FreeInterface {
     }
 
     /**
-     * Abstract method
-     * Calculates the final price of the food item.
+     * Returns the item's options, such as its toppings, packed into an int for OrderCodec.
+     * The decoder its type was registered with rebuilds the item from this value.
+     * Unless a subclass packs them another way, this is the option bitset itself.
+     *
+     * @return the packed options
+     */
+    public int getOptionBits() {
+        return options;
+    }
+
+    /**
+     * Calculates the final price of the food item from the current menu.
+     */
+    public final void calculatePrice() {
+        setPrice(quotePrice());
+    }
+
+    /**
+     * Returns what the item costs on the current menu, without changing its price.
+     * Safe to call from several threads, also while the menu is being edited.
+     *
+     * @return the menu price of the item
      */
-    public abstract void calculatePrice();
+    public final double quotePrice() {
+        return FoodItemRegistry.quotePrice(typeId, options);
+    }
 
     /**
-     * Abstract method
-     * Determines and assigns the meal type based on ingredients.
+     * Determines and assigns the meal type from the item's options.
      */
-    public abstract void fixFoodType();
+    public final void fixFoodType() {
+        setMealType(FoodItemRegistry.classify(typeId, options));
+    }
 
     /**
      * Abstract Method
@@ -0,0 +1,307 @@
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Catalog of food item types. Each type gets a small integer id, and everything the
+ * order code needs to know about a type is kept in arrays indexed by that id:
+ * - its display name
+ * - its menu: a base price and food type, and a price and food type for each option,
+ *   such as a topping, that an item of the type can have
+ * - how many paid items earn a free one (0 for no promotion)
+ * - how to make the free item
+ * - its mean preparation time in minutes
+ * - how to rebuild an item from the option bits OrderCodec stored for it
+ * An item is its type id and a bitset of its options, so every item is priced and
+ * classified by the same few array reads, whatever its class. Orders count, price and
+ * quote items, and the codec encodes and decodes them, by their id rather than their class,
+ * so a new product only needs a FoodItem subclass and one call to register.
+ * Every change publishes a new copy of the arrays, so a reader on any thread sees the whole
+ * catalog either before or after it. Types should be registered before orders containing
+ * them are taken, and in the same order on every node exchanging encoded orders.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class FoodItemRegistry {
+
+    // Ids of the built-in types; also their item kinds in OrderCodec
+    public static final int PIZZA = 0;
+    public static final int PASTA = 1;
+
+    private static final int MAX_OPTIONS = 32; // One bit of an int each
+
+    private static volatile Catalog catalog = new Catalog(null, 0);
+
+    static {
+        register("Pizza", FoodItem.getBasePrice(), FoodType.VEGAN, Pizza.toppingPrices(), Pizza.toppingFoodTypes(),
+                2, Pizza::new, 3.0, Pizza::fromOptionBits);
+        register("Pasta", FoodItem.getBasePrice(), FoodType.VEGAN, Pasta.toppingPrices(), Pasta.toppingFoodTypes(),
+                2, Pasta::new, 2.5, Pasta::fromOptionBits);
+    }
+
+    /**
+     * Adds a food item type without options to the catalog. Encoded items of the type
+     * are rebuilt with the factory.
+     *
+     * @param name               the display name, e.g. "Garlic Bread"
+     * @param price              the price of one item
+     * @param foodType           the meal type of every item of the type
+     * @param promotionThreshold the paid items of this type that earn one free item, or 0 for none
+     * @param freeItemFactory    makes the item given away by the promotion, and decoded items
+     * @param meanPrepMinutes    the mean minutes the kitchen takes to prepare one item
+     * @return the id of the new type
+     */
+    public static int register(String name, double price, FoodType foodType, int promotionThreshold,
+                               Supplier<? extends FoodItem> freeItemFactory, double meanPrepMinutes) {
+        return register(name, price, foodType, new double[0], new FoodType[0], promotionThreshold, freeItemFactory,
+                meanPrepMinutes, bits -> freeItemFactory.get());
+    }
+
+    /**
+     * Adds a food item type to the catalog. An item costs the base price plus the price of
+     * each of its options, and its meal type is the strictest of the base food type and
+     * its options' food types: MEAT, then VEGETARIAN, then VEGAN.
+     *
+     * @param name               the display name, e.g. "Pizza"
+     * @param basePrice          the price of an item with no options
+     * @param baseFoodType       the meal type of an item with no options
+     * @param optionPrices       the price of each option, indexed by its bit in the item's options
+     * @param optionFoodTypes    the meal type of each option, indexed the same way
+     * @param promotionThreshold the paid items of this type that earn one free item, or 0 for none
+     * @param freeItemFactory    makes the item given away by the promotion
+     * @param meanPrepMinutes    the mean minutes the kitchen takes to prepare one item
+     * @param itemDecoder        rebuilds an item from the value its getOptionBits returned
+     * @return the id of the new type
+     * @throws IllegalArgumentException if a price, threshold or time is negative, or the
+     *                                  options are missing a food type or number more than 32
+     */
+    public static synchronized int register(String name, double basePrice, FoodType baseFoodType,
+                                            double[] optionPrices, FoodType[] optionFoodTypes, int promotionThreshold,
+                                            Supplier<? extends FoodItem> freeItemFactory, double meanPrepMinutes,
+                                            IntFunction<? extends FoodItem> itemDecoder) {
+        if (basePrice < 0 || promotionThreshold < 0 || meanPrepMinutes < 0) {
+            throw new IllegalArgumentException("Price, promotion threshold and preparation time cannot be negative.");
+        }
+        if (optionPrices.length != optionFoodTypes.length || optionPrices.length > MAX_OPTIONS) {
+            throw new IllegalArgumentException("Each of at most " + MAX_OPTIONS + " options needs a price and a food type.");
+        }
+        for (int option = 0; option < optionPrices.length; option++) {
+            if (optionPrices[option] < 0 || optionFoodTypes[option] == null) {
+                throw new IllegalArgumentException("Option " + option + " needs a price of at least 0 and a food type.");
+            }
+        }
+        if (baseFoodType == null) {
+            throw new IllegalArgumentException("Food type cannot be null.");
+        }
+
+        int id = catalog.names.length;
+        Catalog updated = new Catalog(catalog, id + 1);
+        updated.names[id] = name;
+        updated.basePrices[id] = basePrice;
+        updated.baseFoodTypes[id] = baseFoodType;
+        updated.optionPrices[id] = optionPrices.clone();
+        updated.optionFoodTypes[id] = optionFoodTypes.clone();
+        updated.promotionThresholds[id] = promotionThreshold;
+        updated.freeItemFactories[id] = freeItemFactory;
+        updated.prepMinutes[id] = meanPrepMinutes;
+        updated.itemDecoders[id] = itemDecoder;
+        catalog = updated;
+        return id;
+    }
+
+    /**
+     * Returns the number of registered types; ids run from 0 to one less than this.
+     *
+     * @return the type count
+     */
+    public static int size() {
+        return catalog.names.length;
+    }
+
+    /**
+     * Returns a type's display name.
+     *
+     * @param typeId the type id
+     * @return the name
+     */
+    public static String getName(int typeId) {
+        return catalog.names[typeId];
+    }
+
+    // ================= Menu ================= //
+
+    /**
+     * Prices an item from its type's current menu.
+     *
+     * @param typeId  the item's type id
+     * @param options the bitset of the item's options
+     * @return the base price plus the price of each option
+     */
+    public static double quotePrice(int typeId, int options) {
+        Catalog current = catalog;
+        double price = current.basePrices[typeId];
+        double[] optionPrices = current.optionPrices[typeId];
+        for (int rest = options; rest != 0; rest &= rest - 1) {
+            price += optionPrices[Integer.numberOfTrailingZeros(rest)];
+        }
+        return price;
+    }
+
+    /**
+     * Works out the meal type of an item from its type's menu.
+     *
+     * @param typeId  the item's type id
+     * @param options the bitset of the item's options
+     * @return the strictest food type of the base and the options
+     */
+    public static FoodType classify(int typeId, int options) {
+        Catalog current = catalog;
+        FoodType foodType = current.baseFoodTypes[typeId];
+        FoodType[] optionFoodTypes = current.optionFoodTypes[typeId];
+        for (int rest = options; rest != 0; rest &= rest - 1) {
+            FoodType optionFoodType = optionFoodTypes[Integer.numberOfTrailingZeros(rest)];
+            if (optionFoodType.ordinal() < foodType.ordinal()) foodType = optionFoodType; // MEAT comes first
+        }
+        return foodType;
+    }
+
+    /**
+     * Changes the price of one option of a type for items priced from now on.
+     * Items already made keep their price; quote them again to see the difference.
+     *
+     * @param typeId the type id
+     * @param option the option's bit in the item's options
+     * @param price  the new price of the option
+     */
+    public static synchronized void setOptionPrice(int typeId, int option, double price) {
+        if (price < 0) {
+            throw new IllegalArgumentException("Option price cannot be negative.");
+        }
+        Catalog updated = new Catalog(catalog, catalog.names.length);
+        updated.optionPrices[typeId] = updated.optionPrices[typeId].clone();
+        updated.optionPrices[typeId][option] = price;
+        catalog = updated;
+    }
+
+    // ================= Promotions and kitchen ================= //
+
+    /**
+     * Returns how many paid items of a type earn a free one.
+     *
+     * @param typeId the type id
+     * @return the threshold, or 0 if the type has no promotion
+     */
+    public static int getPromotionThreshold(int typeId) {
+        return catalog.promotionThresholds[typeId];
+    }
+
+    /**
+     * Changes how many paid items of a type earn a free one.
+     *
+     * @param typeId    the type id
+     * @param threshold the new threshold, or 0 to end the promotion
+     */
+    public static synchronized void setPromotionThreshold(int typeId, int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Promotion threshold cannot be negative.");
+        }
+        Catalog updated = new Catalog(catalog, catalog.names.length);
+        updated.promotionThresholds[typeId] = threshold;
+        catalog = updated;
+    }
+
+    /**
+     * Makes the item given away by a type's promotion, already marked free.
+     *
+     * @param typeId the type id
+     * @return the free item
+     */
+    public static FoodItem newFreeItem(int typeId) {
+        FoodItem item = (FoodItem) catalog.freeItemFactories[typeId].get();
+        item.markFree();
+        return item;
+    }
+
+    /**
+     * Rebuilds an item of a type from the option bits it was encoded with.
+     *
+     * @param typeId     the type id
+     * @param optionBits the value the item's getOptionBits returned
+     * @return the item, priced from the current menu
+     * @throws IllegalArgumentException if no type has that id
+     */
+    public static FoodItem newItem(int typeId, int optionBits) {
+        Catalog current = catalog;
+        if (typeId < 0 || typeId >= current.names.length) {
+            throw new IllegalArgumentException("Unknown food item type: " + typeId);
+        }
+        return (FoodItem) current.itemDecoders[typeId].apply(optionBits);
+    }
+
+    /**
+     * Returns the mean time the kitchen takes to prepare one item of a type.
+     *
+     * @param typeId the type id
+     * @return the preparation time in minutes
+     */
+    public static double getPrepMinutes(int typeId) {
+        return catalog.prepMinutes[typeId];
+    }
+
+    /**
+     * Changes the mean preparation time of a type.
+     *
+     * @param typeId  the type id
+     * @param minutes the preparation time in minutes
+     */
+    public static synchronized void setPrepMinutes(int typeId, double minutes) {
+        if (minutes < 0) {
+            throw new IllegalArgumentException("Preparation time cannot be negative.");
+        }
+        Catalog updated = new Catalog(catalog, catalog.names.length);
+        updated.prepMinutes[typeId] = minutes;
+        catalog = updated;
+    }
+
+    /**
+     * One version of the catalog. Never changed once published; a change copies it.
+     */
+    private static final class Catalog {
+
+        private final String[] names;
+        private final double[] basePrices;
+        private final FoodType[] baseFoodTypes;
+        private final double[][] optionPrices; // Shared with the previous version until an option is repriced
+        private final FoodType[][] optionFoodTypes;
+        private final int[] promotionThresholds;
+        private final Supplier<?>[] freeItemFactories;
+        private final double[] prepMinutes;
+        private final IntFunction<?>[] itemDecoders;
+
+        // Copies the first types of the previous version, or starts empty if there is none
+        Catalog(Catalog previous, int size) {
+            if (previous == null) {
+                names = new String[size];
+                basePrices = new double[size];
+                baseFoodTypes = new FoodType[size];
+                optionPrices = new double[size][];
+                optionFoodTypes = new FoodType[size][];
+                promotionThresholds = new int[size];
+                freeItemFactories = new Supplier<?>[size];
+                prepMinutes = new double[size];
+                itemDecoders = new IntFunction<?>[size];
+            } else {
+                names = Arrays.copyOf(previous.names, size);
+                basePrices = Arrays.copyOf(previous.basePrices, size);
+                baseFoodTypes = Arrays.copyOf(previous.baseFoodTypes, size);
+                optionPrices = Arrays.copyOf(previous.optionPrices, size);
+                optionFoodTypes = Arrays.copyOf(previous.optionFoodTypes, size);
+                promotionThresholds = Arrays.copyOf(previous.promotionThresholds, size);
+                freeItemFactories = Arrays.copyOf(previous.freeItemFactories, size);
+                prepMinutes = Arrays.copyOf(previous.prepMinutes, size);
+                itemDecoders = Arrays.copyOf(previous.itemDecoders, size);
+            }
+        }
+    }
+}
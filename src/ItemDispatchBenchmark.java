@@ -0,0 +1,302 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures Order with many food item types. Registers ten side dishes next to pizza and
+ * pasta, each with its own price and meal type in FoodItemRegistry but all of one class,
+ * and times on a random mix of items:
+ * - Order.addFoodItem, which counts, prices and classifies items by their type id
+ * - Order.quoteTotalCost, which reprices every item from the registry's menu arrays
+ * - quoting the same items through the registry, and through a price method that each of
+ *   twelve classes overrides, as Pizza and Pasta did before the registry held their menus
+ * - counting them by type id, and with an instanceof chain
+ * Each is run on a mix of two types and then of twelve. The twelve-type mix has fewer pizzas,
+ * whose toppings take longest to price, so compare rows within a column: the overridden
+ * method keeps up with the registry for two classes but not for twelve, when its call site
+ * sees too many classes to inline. Times are the best of several rounds after a warm-up.
+ * Usage: java ItemDispatchBenchmark [items] [rounds]
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class ItemDispatchBenchmark {
+
+    private static final int TYPE_COUNT = 12;
+    private static final int ITEMS_PER_ORDER = 4;
+
+    private static long sink; // Keeps results from being optimised away
+
+    /**
+     * Runs each measurement on both mixes and prints the time per item.
+     *
+     * @param args optional number of items and number of timed rounds
+     */
+    public static void main(String[] args) {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        registerSides();
+        String[] names = {"Order.addFoodItem", "Order.quoteTotalCost", "quote by registry",
+            "quote by overridden method", "count by type id", "count by instanceof"};
+        double[][] nanosPerItem = new double[names.length][];
+        int[] mixes = {2, TYPE_COUNT};
+        for (int m = 0; m < mixes.length; m++) {
+            Random random = new Random(42);
+            int[] types = new int[itemCount];
+            int[] options = new int[itemCount];
+            for (int i = 0; i < itemCount; i++) {
+                types[i] = random.nextInt(mixes[m]);
+                options[i] = types[i] == FoodItemRegistry.PIZZA ? random.nextInt(1 << PizzaToppings.values().length)
+                        : types[i] == FoodItemRegistry.PASTA ? random.nextInt(PastaTopping.values().length + 1) : 0;
+            }
+            FoodItem[] items = buildItems(types, options);
+            LegacyItem[] legacyItems = buildLegacyItems(types, options);
+
+            long[] best = new long[names.length];
+            Arrays.fill(best, Long.MAX_VALUE);
+            for (int round = -3; round < rounds; round++) { // Negative rounds warm up
+                long[] elapsed = new long[names.length];
+                long start = System.nanoTime();
+                Order[] orders = addItems(items);
+                elapsed[0] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                quoteOrders(orders);
+                elapsed[1] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                quoteByRegistry(items);
+                elapsed[2] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                quoteByOverride(legacyItems);
+                elapsed[3] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                countById(items);
+                elapsed[4] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                countByInstanceof(legacyItems);
+                elapsed[5] = System.nanoTime() - start;
+
+                for (int k = 0; round >= 0 && k < names.length; k++) {
+                    best[k] = Math.min(best[k], elapsed[k]);
+                }
+            }
+            for (int k = 0; k < names.length; k++) {
+                if (nanosPerItem[k] == null) nanosPerItem[k] = new double[mixes.length];
+                nanosPerItem[k][m] = (double) best[k] / itemCount;
+            }
+        }
+
+        System.out.printf("%d items, %d per order, best of %d rounds, ns/item%n", itemCount, ITEMS_PER_ORDER, rounds);
+        System.out.printf("%-28s %9s %9s%n", "", "2 types", TYPE_COUNT + " types");
+        for (int k = 0; k < names.length; k++) {
+            System.out.printf("%-28s %9.2f %9.2f%n", names[k], nanosPerItem[k][0], nanosPerItem[k][1]);
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    // Builds orders of a few items each, as the till does
+    private static Order[] addItems(FoodItem[] items) {
+        Order[] orders = new Order[items.length / ITEMS_PER_ORDER];
+        for (int o = 0; o < orders.length; o++) {
+            Order order = new Order("Customer", 12345678, "1 High Street");
+            for (int i = o * ITEMS_PER_ORDER; i < (o + 1) * ITEMS_PER_ORDER; i++) {
+                order.addFoodItem(items[i], false);
+            }
+            orders[o] = order;
+        }
+        return orders;
+    }
+
+    private static void quoteOrders(Order[] orders) {
+        for (Order order : orders) {
+            sink += order.quoteTotalCost().getDeltaCents();
+        }
+    }
+
+    private static void quoteByRegistry(FoodItem[] items) {
+        double total = 0;
+        for (FoodItem item : items) {
+            total += item.quotePrice();
+        }
+        sink += (long) total;
+    }
+
+    private static void quoteByOverride(LegacyItem[] items) {
+        double total = 0;
+        for (LegacyItem item : items) {
+            total += item.quotePrice();
+        }
+        sink += (long) total;
+    }
+
+    // Counts the way Order does: one array slot per registered type
+    private static void countById(FoodItem[] items) {
+        int[] counts = new int[FoodItemRegistry.size()];
+        for (FoodItem item : items) {
+            counts[item.getTypeId()]++;
+        }
+        sink += counts[0];
+    }
+
+    // Counts the way Order did before the registry, one test per class
+    private static void countByInstanceof(LegacyItem[] items) {
+        int[] counts = new int[TYPE_COUNT];
+        for (LegacyItem item : items) {
+            if (item instanceof LegacyPizza) counts[0]++;
+            else if (item instanceof LegacyPasta) counts[1]++;
+            else if (item instanceof Side2) counts[2]++;
+            else if (item instanceof Side3) counts[3]++;
+            else if (item instanceof Side4) counts[4]++;
+            else if (item instanceof Side5) counts[5]++;
+            else if (item instanceof Side6) counts[6]++;
+            else if (item instanceof Side7) counts[7]++;
+            else if (item instanceof Side8) counts[8]++;
+            else if (item instanceof Side9) counts[9]++;
+            else if (item instanceof Side10) counts[10]++;
+            else if (item instanceof Side11) counts[11]++;
+        }
+        sink += counts[0];
+    }
+
+    private static FoodItem[] buildItems(int[] types, int[] options) {
+        PizzaToppings[] pizzaToppings = PizzaToppings.values();
+        FoodItem[] items = new FoodItem[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == FoodItemRegistry.PIZZA) {
+                ArrayList<PizzaToppings> toppings = new ArrayList<>();
+                for (PizzaToppings topping : pizzaToppings) {
+                    if ((options[i] & 1 << topping.ordinal()) != 0) toppings.add(topping);
+                }
+                items[i] = new Pizza(toppings);
+            } else if (types[i] == FoodItemRegistry.PASTA) {
+                items[i] = options[i] == 0 ? new Pasta() : new Pasta(PastaTopping.values()[options[i] - 1]);
+            } else {
+                items[i] = new Side(types[i]);
+            }
+        }
+        return items;
+    }
+
+    private static LegacyItem[] buildLegacyItems(int[] types, int[] options) {
+        LegacyItem[] items = new LegacyItem[types.length];
+        for (int i = 0; i < types.length; i++) {
+            switch (types[i]) {
+                case 0: items[i] = new LegacyPizza(options[i]); break;
+                case 1: items[i] = new LegacyPasta(options[i]); break;
+                case 2: items[i] = new Side2(); break;
+                case 3: items[i] = new Side3(); break;
+                case 4: items[i] = new Side4(); break;
+                case 5: items[i] = new Side5(); break;
+                case 6: items[i] = new Side6(); break;
+                case 7: items[i] = new Side7(); break;
+                case 8: items[i] = new Side8(); break;
+                case 9: items[i] = new Side9(); break;
+                case 10: items[i] = new Side10(); break;
+                default: items[i] = new Side11(); break;
+            }
+        }
+        return items;
+    }
+
+    // Side dishes take type ids 2 to 11, straight after pizza and pasta, with prices from 3.00 to 5.25
+    private static void registerSides() {
+        if (FoodItemRegistry.size() != 2) {
+            throw new IllegalStateException("Expected only pizza and pasta to be registered.");
+        }
+        for (int type = 2; type < TYPE_COUNT; type++) {
+            int id = type;
+            FoodItemRegistry.register("Side" + type, Side.price(type), Side.foodType(type), 0, () -> new Side(id), 1.0);
+        }
+    }
+
+    /**
+     * A side dish with no options or promotion; its type id alone sets its price and meal type.
+     */
+    private static final class Side extends FoodItem {
+
+        Side(int typeId) {
+            super(typeId);
+        }
+
+        static double price(int type) {
+            return 2.50 + type * 0.25;
+        }
+
+        static FoodType foodType(int type) {
+            return type % 2 == 0 ? FoodType.VEGAN : FoodType.VEGETARIAN;
+        }
+
+        @Override
+        public int getFreeItemCount(int itemCount) {
+            return 0;
+        }
+
+        @Override
+        public FoodItem generateFreeItem() {
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return FoodItemRegistry.getName(getTypeId());
+        }
+    }
+
+    /**
+     * An item that prices itself, one class per type, as before the registry held the menus.
+     */
+    private abstract static class LegacyItem {
+
+        abstract double quotePrice();
+    }
+
+    private static final class LegacyPizza extends LegacyItem {
+
+        private static final double[] TOPPING_PRICES = Pizza.toppingPrices();
+        private final int toppings;
+
+        LegacyPizza(int toppings) {
+            this.toppings = toppings;
+        }
+
+        @Override
+        double quotePrice() {
+            double price = FoodItem.getBasePrice();
+            for (int rest = toppings; rest != 0; rest &= rest - 1) {
+                price += TOPPING_PRICES[Integer.numberOfTrailingZeros(rest)];
+            }
+            return price;
+        }
+    }
+
+    private static final class LegacyPasta extends LegacyItem {
+
+        private static final double[] TOPPING_PRICES = Pasta.toppingPrices();
+        private final int topping; // Ordinal + 1, or 0 for none
+
+        LegacyPasta(int topping) {
+            this.topping = topping;
+        }
+
+        @Override
+        double quotePrice() {
+            return topping == 0 ? FoodItem.getBasePrice() : FoodItem.getBasePrice() + TOPPING_PRICES[topping - 1];
+        }
+    }
+
+    private static final class Side2 extends LegacyItem { @Override double quotePrice() { return 3.00; } }
+    private static final class Side3 extends LegacyItem { @Override double quotePrice() { return 3.25; } }
+    private static final class Side4 extends LegacyItem { @Override double quotePrice() { return 3.50; } }
+    private static final class Side5 extends LegacyItem { @Override double quotePrice() { return 3.75; } }
+    private static final class Side6 extends LegacyItem { @Override double quotePrice() { return 4.00; } }
+    private static final class Side7 extends LegacyItem { @Override double quotePrice() { return 4.25; } }
+    private static final class Side8 extends LegacyItem { @Override double quotePrice() { return 4.50; } }
+    private static final class Side9 extends LegacyItem { @Override double quotePrice() { return 4.75; } }
+    private static final class Side10 extends LegacyItem { @Override double quotePrice() { return 5.00; } }
+    private static final class Side11 extends LegacyItem { @Override double quotePrice() { return 5.25; } }
+}
@@ -0,0 +1,331 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Deterministic discrete-event simulation of the order queue and kitchen over a busy evening.
+ * Orders arrive as a Poisson process whose rate ramps from a base rate up to a peak rate
+ * and back. Each order has one or more pizzas and pastas with toppings drawn from
+ * configurable weights, and some customers order more than once. Orders are priced by the
+ * real Order class and kept in an OrderBook, optionally behind an AdmissionController, and a
+ * fixed number of kitchen stations work through the book in FIFO order. Time is simulated,
+ * so hours of trading run in well under a second. The same seed always gives the same
+ * orders, whatever the kitchen capacity, so runs can be compared directly.
+ * This covers only the queue and the kitchen. It is not an end-to-end test of the takeaway:
+ * orders don't go through TakeawayDriver's submission, deduplication, event bus, search,
+ * ETA or replication, which all run on the wall clock.
+ * Usage: java KitchenQueueSimulator [seed] [stations] [peakOrdersPerMinute] [targetWaitMinutes]
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class KitchenQueueSimulator {
+
+    private static final int ARRIVAL = 0;
+    private static final int KITCHEN_DONE = 1;
+
+    // Scenario, all times in minutes of simulated time
+    private final long seed;
+    private double durationMinutes = 240;
+    private double baseOrdersPerMinute = 0.5;
+    private double peakOrdersPerMinute = 2.0;
+    private double peakStartMinute = 90;
+    private double peakEndMinute = 180;
+    private double rampMinutes = 30;
+    private int kitchenStations = 8;
+    private double[] prepMinutesByType = new double[FoodItemRegistry.size()]; // Indexed by item type id
+    private double pizzaProbability = 0.65;
+    private double extraItemProbability = 0.45;
+    private double repeatCustomerProbability = 0.3;
+    private double[] pizzaToppingWeights = {0.35, 0.7, 0.15, 0.3, 0.5, 0.15}; // Chance each topping is added
+    private double[] pastaToppingWeights = {0.35, 0.15, 0.2, 0.2, 0.1};       // Each topping, then no topping
+
+    private OrderBook orderBook = new OrderQueue();
+    private AdmissionController admission; // Null to accept every order
+
+    /**
+     * Constructs a simulator with the default Friday-night scenario.
+     *
+     * @param seed the random seed; equal seeds give identical runs
+     */
+    public KitchenQueueSimulator(long seed) {
+        this.seed = seed;
+        for (int type = 0; type < prepMinutesByType.length; type++) {
+            prepMinutesByType[type] = FoodItemRegistry.getPrepMinutes(type);
+        }
+    }
+
+    /**
+     * Runs a simulation from the command line and prints its report.
+     *
+     * @param args optional seed, number of kitchen stations, peak orders per minute and
+     *             the target wait for admission control
+     */
+    public static void main(String[] args) {
+        KitchenQueueSimulator simulator = new KitchenQueueSimulator(args.length > 0 ? Long.parseLong(args[0]) : 42);
+        if (args.length > 1) simulator.setKitchenStations(Integer.parseInt(args[1]));
+        if (args.length > 2) simulator.setArrivalRates(0.5, Double.parseDouble(args[2]));
+        if (args.length > 3) {
+            simulator.setAdmissionController(new AdmissionController(Long.parseLong(args[3]) * 60_000, 2 * 60_000));
+        }
+        simulator.run().print(System.out);
+    }
+
+    // ================= Scenario ================= //
+
+    /**
+     * Sets how long trading runs.
+     *
+     * @param durationMinutes the simulated trading time in minutes
+     */
+    public void setDuration(double durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
+
+    /**
+     * Sets the off-peak and peak arrival rates.
+     *
+     * @param baseOrdersPerMinute the arrival rate outside the peak
+     * @param peakOrdersPerMinute the arrival rate at the height of the peak
+     */
+    public void setArrivalRates(double baseOrdersPerMinute, double peakOrdersPerMinute) {
+        this.baseOrdersPerMinute = baseOrdersPerMinute;
+        this.peakOrdersPerMinute = peakOrdersPerMinute;
+    }
+
+    /**
+     * Sets when the peak happens. The rate ramps linearly up to the peak rate over
+     * {@code rampMinutes} before the start and back down over the same time after the end.
+     *
+     * @param peakStartMinute the minute the peak rate is reached
+     * @param peakEndMinute   the minute the peak rate starts to fall
+     * @param rampMinutes     the length of each ramp
+     */
+    public void setPeak(double peakStartMinute, double peakEndMinute, double rampMinutes) {
+        this.peakStartMinute = peakStartMinute;
+        this.peakEndMinute = peakEndMinute;
+        this.rampMinutes = rampMinutes;
+    }
+
+    /**
+     * Sets the number of orders the kitchen can prepare at once.
+     *
+     * @param kitchenStations the number of stations
+     */
+    public void setKitchenStations(int kitchenStations) {
+        this.kitchenStations = kitchenStations;
+    }
+
+    /**
+     * Sets the mean preparation time of pizzas and pastas for this simulation.
+     * Other item types use their time from FoodItemRegistry.
+     *
+     * @param pizzaPrepMinutes the mean minutes to prepare a pizza
+     * @param pastaPrepMinutes the mean minutes to prepare a pasta
+     */
+    public void setPrepTimes(double pizzaPrepMinutes, double pastaPrepMinutes) {
+        prepMinutesByType[FoodItemRegistry.PIZZA] = pizzaPrepMinutes;
+        prepMinutesByType[FoodItemRegistry.PASTA] = pastaPrepMinutes;
+    }
+
+    /**
+     * Sets the shape of each order.
+     *
+     * @param pizzaProbability          the chance an item is a pizza rather than a pasta
+     * @param extraItemProbability      the chance of adding another item after each one
+     * @param repeatCustomerProbability the chance an order comes from a returning customer
+     */
+    public void setOrderMix(double pizzaProbability, double extraItemProbability, double repeatCustomerProbability) {
+        this.pizzaProbability = pizzaProbability;
+        this.extraItemProbability = extraItemProbability;
+        this.repeatCustomerProbability = repeatCustomerProbability;
+    }
+
+    /**
+     * Sets the topping distributions.
+     *
+     * @param pizzaToppingWeights the chance each PizzaToppings value is added, by ordinal
+     * @param pastaToppingWeights the relative weight of each PastaTopping value by ordinal,
+     *                            followed by the weight of no topping
+     */
+    public void setToppingWeights(double[] pizzaToppingWeights, double[] pastaToppingWeights) {
+        if (pizzaToppingWeights.length != PizzaToppings.values().length
+                || pastaToppingWeights.length != PastaTopping.values().length + 1) {
+            throw new IllegalArgumentException("One weight per topping is required (plus 'no topping' for pasta).");
+        }
+        this.pizzaToppingWeights = pizzaToppingWeights.clone();
+        this.pastaToppingWeights = pastaToppingWeights.clone();
+    }
+
+    /**
+     * Sets the order book pending orders are kept in, such as an OffHeapOrderBook.
+     *
+     * @param orderBook an empty order book
+     */
+    public void setOrderBook(OrderBook orderBook) {
+        this.orderBook = orderBook;
+    }
+
+    /**
+     * Puts an admission controller in front of the queue. Turned-away orders are counted
+     * in the report and never reach the kitchen.
+     *
+     * @param admission the controller, driven by simulated time, or null to accept every order
+     */
+    public void setAdmissionController(AdmissionController admission) {
+        this.admission = admission;
+    }
+
+    // ================= Simulation ================= //
+
+    /**
+     * Runs the scenario to completion: trading stops at the set duration and the kitchen
+     * then works through whatever is still queued.
+     *
+     * @return the report of the run
+     */
+    public SimulationReport run() {
+        // Separate streams so changing kitchen capacity doesn't change the orders placed
+        Random random = new Random(seed);
+        Random kitchenRandom = new Random(~seed);
+        PriorityQueue<Event> events = new PriorityQueue<>();
+        ArrayList<Customer> customers = new ArrayList<>();
+        HashMap<Long, Double> arrivalTimes = new HashMap<>();
+        SimulationReport report = new SimulationReport((int) Math.ceil(durationMinutes));
+
+        double peakRate = Math.max(baseOrdersPerMinute, peakOrdersPerMinute);
+        events.add(new Event(nextArrival(0, peakRate, random), ARRIVAL));
+        int idleStations = kitchenStations;
+        int sequence = 0;
+
+        long started = System.nanoTime();
+        while (!events.isEmpty()) {
+            Event event = events.poll();
+            report.sampleQueueDepth(event.time, orderBook.size());
+
+            if (event.type == ARRIVAL) {
+                if (event.time > durationMinutes) continue;
+                events.add(new Event(nextArrival(event.time, peakRate, random), ARRIVAL));
+
+                // Thinning: accept at the current rate out of the peak rate
+                if (random.nextDouble() * peakRate > rateAt(event.time)) continue;
+
+                Order order = newOrder(random, customers, ++sequence);
+                if (admission != null && !admission.admit(orderBook.size(), toNanos(event.time))) {
+                    report.recordRejection();
+                    continue;
+                }
+                orderBook.add(order);
+                arrivalTimes.put(order.getOrderId(), event.time);
+                report.recordArrival(order);
+            } else {
+                Order done = event.order;
+                report.recordCompletion(event.time, event.time - arrivalTimes.remove(done.getOrderId()));
+                idleStations++;
+            }
+
+            // Hand queued orders to any idle stations
+            while (idleStations > 0 && !orderBook.isEmpty()) {
+                Order next = orderBook.poll();
+                if (admission != null) admission.recordDelivery(toNanos(event.time), orderBook.size());
+                idleStations--;
+                Event finished = new Event(event.time + prepMinutes(next, kitchenRandom), KITCHEN_DONE);
+                finished.order = next;
+                events.add(finished);
+            }
+        }
+        report.finish(System.nanoTime() - started);
+        return report;
+    }
+
+    /**
+     * Returns the arrival rate at the given minute.
+     */
+    double rateAt(double minute) {
+        double peakShare;
+        if (minute >= peakStartMinute && minute <= peakEndMinute) peakShare = 1;
+        else if (minute < peakStartMinute) peakShare = 1 - (peakStartMinute - minute) / rampMinutes;
+        else peakShare = 1 - (minute - peakEndMinute) / rampMinutes;
+
+        peakShare = Math.max(0, Math.min(1, peakShare));
+        return baseOrdersPerMinute + peakShare * (peakOrdersPerMinute - baseOrdersPerMinute);
+    }
+
+    private static long toNanos(double minutes) {
+        return (long) (minutes * 60e9);
+    }
+
+    private static double nextArrival(double now, double rate, Random random) {
+        return now - Math.log(1 - random.nextDouble()) / rate;
+    }
+
+    private Order newOrder(Random random, ArrayList<Customer> customers, int sequence) {
+        Customer customer;
+        if (!customers.isEmpty() && random.nextDouble() < repeatCustomerProbability) {
+            customer = customers.get(random.nextInt(customers.size()));
+        } else {
+            String name = "Customer " + sequence;
+            int phoneNumber = 20_000_000 + random.nextInt(80_000_000);
+            customer = new Customer(name, phoneNumber, (1 + random.nextInt(300)) + " Simulation Street");
+            customers.add(customer);
+        }
+
+        Order order = new Order(customer.getCustomerName(), customer.getCustomerPhoneNumber(), customer.getDeliveryAddress());
+        do {
+            order.addFoodItem(random.nextDouble() < pizzaProbability ? newPizza(random) : newPasta(random), false);
+        } while (random.nextDouble() < extraItemProbability);
+        return order;
+    }
+
+    private Pizza newPizza(Random random) {
+        ArrayList<PizzaToppings> toppings = new ArrayList<>();
+        PizzaToppings[] all = PizzaToppings.values();
+        for (int i = 0; i < all.length; i++) {
+            if (random.nextDouble() < pizzaToppingWeights[i]) toppings.add(all[i]);
+        }
+        return new Pizza(toppings);
+    }
+
+    private Pasta newPasta(Random random) {
+        double total = Arrays.stream(pastaToppingWeights).sum();
+        double pick = random.nextDouble() * total;
+        PastaTopping[] all = PastaTopping.values();
+        for (int i = 0; i < all.length; i++) {
+            pick -= pastaToppingWeights[i];
+            if (pick < 0) return new Pasta(all[i]);
+        }
+        return new Pasta();
+    }
+
+    // Exponentially distributed preparation time for every item, free ones included
+    private double prepMinutes(Order order, Random random) {
+        double minutes = 0;
+        for (FoodItem item : order.getFoodItems()) {
+            int type = item.getTypeId();
+            double mean = type < prepMinutesByType.length ? prepMinutesByType[type] : FoodItemRegistry.getPrepMinutes(type);
+            minutes += mean * 0.5 + mean * 0.5 * -Math.log(1 - random.nextDouble());
+        }
+        return minutes;
+    }
+
+    /**
+     * A scheduled arrival or kitchen completion.
+     */
+    private static final class Event implements Comparable<Event> {
+        private final double time;
+        private final int type;
+        private Order order;
+
+        private Event(double time, int type) {
+            this.time = time;
+            this.type = type;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            return Double.compare(time, other.time);
+        }
+    }
+}
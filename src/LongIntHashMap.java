@@ -0,0 +1,165 @@
+import java.util.Arrays;
+
+/**
+ * Hash map from long keys to non-negative int values, stored in two primitive arrays.
+ * Uses open addressing with linear probing, and deletion shifts later entries back into the
+ * gap instead of leaving tombstones, so lookups stay short after many removals. Nothing is
+ * allocated per entry, which keeps large indexes cheap for the garbage collector.
+ * Not thread-safe.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class LongIntHashMap {
+
+    /** Value returned for a missing key. */
+    public static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values; // MISSING marks an empty cell
+    private int size;
+    private int mask;
+
+    /**
+     * Constructs an empty map.
+     *
+     * @param expectedSize the number of entries to make room for before growing
+     */
+    public LongIntHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Constructs an empty map with room for 12 entries.
+     */
+    public LongIntHashMap() {
+        this(12);
+    }
+
+    /**
+     * Returns the value stored for a key.
+     *
+     * @param key the key
+     * @return the value, or {@link #MISSING} if the key is not in the map
+     */
+    public int get(long key) {
+        for (int i = indexOf(key); values[i] != MISSING; i = (i + 1) & mask) {
+            if (keys[i] == key) return values[i];
+        }
+        return MISSING;
+    }
+
+    /**
+     * Checks whether a key is in the map.
+     *
+     * @param key the key
+     * @return true if the key has a value
+     */
+    public boolean containsKey(long key) {
+        return get(key) != MISSING;
+    }
+
+    /**
+     * Stores a value for a key, replacing any value it had.
+     *
+     * @param key   the key
+     * @param value the value, which must not be negative
+     * @return the previous value, or {@link #MISSING} if the key was not in the map
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must not be negative.");
+        }
+        int i = indexOf(key);
+        for (; values[i] != MISSING; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > (mask + 1) * 3 / 4) grow();
+        return MISSING;
+    }
+
+    /**
+     * Removes a key and its value.
+     *
+     * @param key the key
+     * @return the removed value, or {@link #MISSING} if the key was not in the map
+     */
+    public int remove(long key) {
+        int i = indexOf(key);
+        while (values[i] != MISSING && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] == MISSING) return MISSING;
+
+        int removed = values[i];
+        size--;
+
+        // Shift back later entries of the probe run whose home is at or before the gap
+        int gap = i;
+        for (int j = (gap + 1) & mask; values[j] != MISSING; j = (j + 1) & mask) {
+            int home = indexOf(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        values[gap] = MISSING;
+        return removed;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of keys in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every entry, keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(values, MISSING);
+        size = 0;
+    }
+
+    private int indexOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        mask = capacity - 1;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == MISSING) continue;
+            int j = indexOf(oldKeys[i]);
+            while (values[j] != MISSING) {
+                j = (j + 1) & mask;
+            }
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,315 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * OrderBook that keeps pending orders outside the Java heap.
+ * Each order is encoded with OrderCodec into a fixed-size slot of a direct ByteBuffer slab:
+ * - int   encoded length (0 marks a free slot, -1 a spilled order)
+ * - bytes the encoded order
+ * An order too large for a slot, such as one with a very long address or dozens of items,
+ * is spilled into a direct buffer of its own size and its slot only marks where it is.
+ * Freed slots go on a free list and are reused before new slabs are allocated.
+ * Everything the heap holds is in primitive arrays: the FIFO of slots, each slot's order id
+ * and add sequence, and a LongIntHashMap from order id to slot. So the heap cost per pending
+ * order is a few dozen bytes and no objects, and a large queue gives the garbage collector
+ * nothing to trace. A FIFO entry is live only while its slot still has the add sequence it
+ * was queued with, so an order cancelled and added again is queued once, at the back.
+ * Orders are decoded from their bytes on every poll, peek, cancel, get and iteration, so each
+ * call returns a new copy; {@link #view(long, OrderFlyweight)} reads fields without building one.
+ * See OrderBookGcBenchmark for the heap and GC pause comparison with OrderQueue.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OffHeapOrderBook implements OrderBook {
+
+    private static final int LENGTH_BYTES = 4;
+    private static final int SPILLED = -1;
+
+    private final int slotSize;
+    private final int slotsPerSlab;
+    private final ArrayList<ByteBuffer> slabs = new ArrayList<>();
+
+    // Per slot: the order id, the add sequence (0 when free) and any spilled buffer
+    private long[] idBySlot = new long[0];
+    private long[] addSequenceBySlot = new long[0];
+    private ByteBuffer[] spilledBySlot = new ByteBuffer[0]; // Orders too large for their slot
+    private long spilledBytes;
+    private long nextAddSequence = 1;
+
+    // Stack of free slot numbers
+    private int[] freeSlots = new int[0];
+    private int freeCount;
+
+    // FIFO of slots and the add sequence each was queued with, as a growable ring
+    private int[] ringSlots = new int[16];
+    private long[] ringSequences = new long[16];
+    private int head;
+    private int tail;
+    private int tombstones;
+
+    private final LongIntHashMap slotByOrderId = new LongIntHashMap();
+
+    /**
+     * Constructs an empty book.
+     *
+     * @param slotSize     the bytes reserved per order; larger orders are spilled
+     * @param slotsPerSlab the number of slots allocated at a time
+     */
+    public OffHeapOrderBook(int slotSize, int slotsPerSlab) {
+        if (slotSize <= LENGTH_BYTES || slotsPerSlab <= 0) {
+            throw new IllegalArgumentException("Slot size and slab size are too small.");
+        }
+        this.slotSize = slotSize;
+        this.slotsPerSlab = slotsPerSlab;
+    }
+
+    /**
+     * Constructs an empty book with 512-byte slots allocated 4096 at a time.
+     */
+    public OffHeapOrderBook() {
+        this(512, 4096);
+    }
+
+    /**
+     * Encodes an order into a free slot and adds it to the back of the book.
+     *
+     * @param order the order to add
+     * @throws IllegalArgumentException if the order is already in the book
+     */
+    @Override
+    public void add(Order order) {
+        if (slotByOrderId.containsKey(order.getOrderId())) {
+            throw new IllegalArgumentException("Order " + order.getOrderId() + " is already queued.");
+        }
+
+        int length = OrderCodec.encodedLength(order);
+        int slot = allocateSlot();
+        ByteBuffer slab = slabOf(slot);
+        int offset = offsetOf(slot);
+        if (length <= slotSize - LENGTH_BYTES) {
+            slab.putInt(offset, length);
+            OrderCodec.encode(order, slab.duplicate().position(offset + LENGTH_BYTES));
+        } else {
+            ByteBuffer spilled = ByteBuffer.allocateDirect(length);
+            OrderCodec.encode(order, spilled.duplicate());
+            spilledBySlot[slot] = spilled;
+            spilledBytes += length;
+            slab.putInt(offset, SPILLED);
+        }
+
+        long sequence = nextAddSequence++;
+        idBySlot[slot] = order.getOrderId();
+        addSequenceBySlot[slot] = sequence;
+        slotByOrderId.put(order.getOrderId(), slot);
+        push(slot, sequence);
+    }
+
+    @Override
+    public Order poll() {
+        skipTombstones();
+        if (head == tail) return null;
+
+        int slot = ringSlots[head];
+        head = (head + 1) & (ringSlots.length - 1);
+        slotByOrderId.remove(idBySlot[slot]);
+        Order order = materialize(slot);
+        freeSlot(slot);
+        return order;
+    }
+
+    @Override
+    public Order peek() {
+        skipTombstones();
+        return head == tail ? null : materialize(ringSlots[head]);
+    }
+
+    @Override
+    public Order cancel(long orderId) {
+        int slot = slotByOrderId.remove(orderId);
+        if (slot == LongIntHashMap.MISSING) return null;
+
+        Order order = materialize(slot);
+        freeSlot(slot);
+        tombstones++;
+        if (tombstones > slotByOrderId.size()) compact();
+        return order;
+    }
+
+    @Override
+    public Order get(long orderId) {
+        int slot = slotByOrderId.get(orderId);
+        return slot == LongIntHashMap.MISSING ? null : materialize(slot);
+    }
+
+    /**
+     * Points a flyweight at a pending order's bytes without building an Order.
+     * The view is valid until that order leaves the book.
+     *
+     * @param orderId the order id
+     * @param view    the flyweight to point at the order
+     * @return true if the order is pending and the view was pointed at it
+     */
+    public boolean view(long orderId, OrderFlyweight view) {
+        int slot = slotByOrderId.get(orderId);
+        if (slot == LongIntHashMap.MISSING) return false;
+        ByteBuffer spilled = spilledBySlot[slot];
+        if (spilled != null) view.wrap(spilled, 0);
+        else view.wrap(slabOf(slot), offsetOf(slot) + LENGTH_BYTES);
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return slotByOrderId.size();
+    }
+
+    /**
+     * Returns the number of bytes of off-heap memory reserved for slots and spilled orders.
+     *
+     * @return the reserved size in bytes
+     */
+    public long getReservedBytes() {
+        return (long) slabs.size() * slotsPerSlab * slotSize + spilledBytes;
+    }
+
+    /**
+     * Iterates over the pending orders, oldest first, decoding each one as it is reached.
+     *
+     * @return an iterator over copies of the orders
+     */
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<Order>() {
+            private int index = head;
+            private Order next = advance();
+
+            private Order advance() {
+                while (index != tail) {
+                    int current = index;
+                    index = (index + 1) & (ringSlots.length - 1);
+                    if (isLive(current)) return materialize(ringSlots[current]);
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Order next() {
+                if (next == null) throw new NoSuchElementException();
+                Order current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    // ================= Slots ================= //
+
+    private Order materialize(int slot) {
+        ByteBuffer spilled = spilledBySlot[slot];
+        if (spilled != null) return OrderCodec.decode(spilled.duplicate());
+        ByteBuffer slab = slabOf(slot);
+        int offset = offsetOf(slot);
+        return OrderCodec.decode(slab.duplicate().position(offset + LENGTH_BYTES));
+    }
+
+    private int allocateSlot() {
+        if (freeCount == 0) addSlab();
+        return freeSlots[--freeCount];
+    }
+
+    private void freeSlot(int slot) {
+        slabOf(slot).putInt(offsetOf(slot), 0);
+        addSequenceBySlot[slot] = 0;
+        if (spilledBySlot[slot] != null) {
+            spilledBytes -= spilledBySlot[slot].capacity();
+            spilledBySlot[slot] = null;
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    // Allocates another slab and puts its slots on the free list, lowest slot on top
+    private void addSlab() {
+        int first = slabs.size() * slotsPerSlab;
+        int slotCount = first + slotsPerSlab;
+        slabs.add(ByteBuffer.allocateDirect(slotsPerSlab * slotSize));
+
+        idBySlot = Arrays.copyOf(idBySlot, slotCount);
+        addSequenceBySlot = Arrays.copyOf(addSequenceBySlot, slotCount);
+        spilledBySlot = Arrays.copyOf(spilledBySlot, slotCount);
+        freeSlots = Arrays.copyOf(freeSlots, slotCount);
+        for (int i = slotsPerSlab - 1; i >= 0; i--) {
+            freeSlots[freeCount++] = first + i;
+        }
+    }
+
+    private ByteBuffer slabOf(int slot) {
+        return slabs.get(slot / slotsPerSlab);
+    }
+
+    private int offsetOf(int slot) {
+        return (slot % slotsPerSlab) * slotSize;
+    }
+
+    // ================= FIFO ring ================= //
+
+    private void push(int slot, long sequence) {
+        ringSlots[tail] = slot;
+        ringSequences[tail] = sequence;
+        tail = (tail + 1) & (ringSlots.length - 1);
+        if (tail == head) growRing();
+    }
+
+    // A ring entry is live while its slot still holds the add it was queued for
+    private boolean isLive(int index) {
+        return addSequenceBySlot[ringSlots[index]] == ringSequences[index];
+    }
+
+    private void growRing() {
+        int length = ringSlots.length;
+        int[] biggerSlots = new int[length * 2];
+        long[] biggerSequences = new long[length * 2];
+        int firstPart = length - head;
+        System.arraycopy(ringSlots, head, biggerSlots, 0, firstPart);
+        System.arraycopy(ringSlots, 0, biggerSlots, firstPart, head);
+        System.arraycopy(ringSequences, head, biggerSequences, 0, firstPart);
+        System.arraycopy(ringSequences, 0, biggerSequences, firstPart, head);
+        head = 0;
+        tail = length;
+        ringSlots = biggerSlots;
+        ringSequences = biggerSequences;
+    }
+
+    private void skipTombstones() {
+        while (head != tail && !isLive(head)) {
+            head = (head + 1) & (ringSlots.length - 1);
+            tombstones--;
+        }
+    }
+
+    // Drops every tombstone; runs only after as many cancels as there are pending orders
+    private void compact() {
+        int kept = 0;
+        int[] compactedSlots = new int[ringSlots.length];
+        long[] compactedSequences = new long[ringSlots.length];
+        for (int i = head; i != tail; i = (i + 1) & (ringSlots.length - 1)) {
+            if (isLive(i)) {
+                compactedSlots[kept] = ringSlots[i];
+                compactedSequences[kept++] = ringSequences[i];
+            }
+        }
+        ringSlots = compactedSlots;
+        ringSequences = compactedSequences;
+        head = 0;
+        tail = kept;
+        tombstones = 0;
+    }
+}
@@ -1,15 +1,25 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a customer order containing multiple food items.
  * It calculates the total cost, applies discount offers,
  * and determines the meal type based on the included food.
+ * Item counts, the total and the meal type are kept up to date as items are added
+ * or removed, so neither needs a pass over the whole order. Items are counted by their
+ * FoodItemRegistry type id and quoted from their type's menu there, so promotions and
+ * pricing work the same way for every type of item.
  *
  * @author Nashmia Shakeel
  * @version 1.0
  */
 public class Order {
 
+    private static final AtomicLong nextOrderId = new AtomicLong(1); // Source of unique order ids
+
+    private final long orderId;
+    private final long createdAtMillis;
     private ArrayList<FoodItem> foodItems;
     private String customerName;
     private int customerContactNumber;
@@ -17,8 +27,11 @@ public class Order {
     private FoodType mealType;
     private double totalCost;
 
-    private boolean freePizzaApplied = false;
-    private boolean freePastaApplied = false;
+    // Running tallies maintained by addFoodItem and removeFoodItem, indexed by item type id
+    private int[] paidCounts = new int[FoodItemRegistry.size()];
+    private FoodItem[] freeItems = new FoodItem[FoodItemRegistry.size()]; // Null until a promotion applies
+    private long totalCents;
+    private final int[] mealTypeCounts = new int[FoodType.values().length];
 
     /**
      * Constructs an Order with customer details.
@@ -28,24 +41,104 @@ public class Order {
      * @param customerDeliveryAddress The delivery address for the order.
      */
     public Order(String customerName, int customerContactNumber, String customerDeliveryAddress) {
+        this(nextOrderId.getAndIncrement(), customerName, customerContactNumber, customerDeliveryAddress);
+    }
+
+    /**
+     * Constructs an Order with an id it was given elsewhere, such as on the primary node.
+     * Ids handed out afterwards are kept above it.
+     *
+     * @param orderId The id of the order.
+     * @param customerName The name of the customer.
+     * @param customerContactNumber The contact number of the customer.
+     * @param customerDeliveryAddress The delivery address for the order.
+     */
+    Order(long orderId, String customerName, int customerContactNumber, String customerDeliveryAddress) {
+        this(orderId, System.currentTimeMillis(), customerName, customerContactNumber, customerDeliveryAddress);
+    }
+
+    /**
+     * Constructs an Order with the id and creation time it was given elsewhere.
+     * Ids handed out afterwards are kept above it.
+     *
+     * @param orderId The id of the order.
+     * @param createdAtMillis When the order was taken, in milliseconds since the epoch.
+     * @param customerName The name of the customer.
+     * @param customerContactNumber The contact number of the customer.
+     * @param customerDeliveryAddress The delivery address for the order.
+     */
+    Order(long orderId, long createdAtMillis, String customerName, int customerContactNumber,
+          String customerDeliveryAddress) {
+        this.orderId = orderId;
+        this.createdAtMillis = createdAtMillis;
         this.customerName = customerName;
         this.customerContactNumber = customerContactNumber;
         this.customerDeliveryAddress = customerDeliveryAddress;
         this.foodItems = new ArrayList<>();
         this.totalCost = 0.0;
         this.mealType = FoodType.VEGAN;
+        nextOrderId.accumulateAndGet(orderId + 1, Math::max);
     }
 
     /**
      * Adds a food item to the order.
-     * Recalculates total cost and meal type.
+     * Updates the total cost, promotions and meal type for the new item only.
      *
      * @param item The food item to add.
      */
     public void addFoodItem(FoodItem item) {
+        addFoodItem(item, true);
+    }
+
+    /**
+     * Adds a food item to the order, optionally without printing the promotion it earns.
+     * Used where many orders are built at once, such as in simulations.
+     *
+     * @param item              The food item to add.
+     * @param announcePromotion Whether to print a message if the item earns a free one.
+     */
+    void addFoodItem(FoodItem item, boolean announcePromotion) {
+        OrderPricingEvent event = new OrderPricingEvent();
+        event.begin();
+
         foodItems.add(item);
-        calculateTotalCost();
-        fixMealType();
+        countItem(item, 1);
+        if (applyPromotion(item.getTypeId()) && announcePromotion) {
+            System.out.println(promotionMessage(item.getTypeId()));
+        }
+        updateMealType();
+
+        commitPricingEvent(event);
+    }
+
+    /**
+     * Removes a paid food item from the order.
+     * The total and meal type are adjusted for that item alone, and a free item is taken
+     * back if the order no longer qualifies for its promotion.
+     *
+     * @param item The food item to remove.
+     * @return True if the item was removed; false if it is not in the order or is a free item.
+     */
+    public boolean removeFoodItem(FoodItem item) {
+        OrderPricingEvent event = new OrderPricingEvent();
+        event.begin();
+
+        if (item.isFree() || !foodItems.remove(item)) {
+            return false;
+        }
+        countItem(item, -1);
+
+        // Revoke a free item whose promotion no longer applies
+        int type = item.getTypeId();
+        FoodItem freeItem = freeItems[type];
+        if (freeItem != null && paidCounts[type] < FoodItemRegistry.getPromotionThreshold(type)) {
+            foodItems.remove(freeItem);
+            countItem(freeItem, -1);
+        }
+
+        updateMealType();
+        commitPricingEvent(event);
+        return true;
     }
 
     /**
@@ -53,40 +146,131 @@ public class Order {
      * Applies "Buy 2 Get 1 Free" by adding a free item instead of reducing the price.
      */
     public void calculateTotalCost() {
-        int pizzaCount = 0;
-        int pastaCount = 0;
-        double total = 0.0;
+        OrderPricingEvent event = new OrderPricingEvent();
+        event.begin();
+
+        recount(); // The item list may have been edited directly
+        for (int type = 0; type < paidCounts.length; type++) {
+            if (applyPromotion(type)) System.out.println(promotionMessage(type));
+        }
+
+        commitPricingEvent(event);
+    }
 
-        // Count pizzas and pastas and calculate running total
+    /**
+     * Prices the order from the current menu and promotion rules without changing it.
+     * Nothing is added to the order and nothing is printed, so quotes can be taken
+     * repeatedly and from several threads at once, as long as the order is not being edited.
+     * Free items cost nothing whatever the menu says.
+     *
+     * @return The quote, compared against the order's current total.
+     */
+    public PriceQuote quoteTotalCost() {
+        long quotedCents = 0;
         for (FoodItem item : foodItems) {
-            if (item instanceof Pizza) pizzaCount++;
-            if (item instanceof Pasta) pastaCount++;
-            total += item.getPrice();
+            if (!item.isFree()) quotedCents += Math.round(item.quotePrice() * 100);
         }
 
-        // Add a free pizza if 2 or more pizzas ordered and free not yet applied
-        if (pizzaCount >= 2 && !freePizzaApplied) {
-            Pizza freePizza = new Pizza();
-            freePizza.setPrice(0.0); // Ensure free item has no cost
-            foodItems.add(freePizza);
-            freePizzaApplied = true;
-            System.out.println("You've received a FREE Pizza for ordering 2 or more pizzas!");
+        // The paid counts are unaffected by prices, so only the thresholds can have changed
+        boolean promotionsChanged = false;
+        for (int type = 0; type < paidCounts.length && !promotionsChanged; type++) {
+            int threshold = FoodItemRegistry.getPromotionThreshold(type);
+            boolean qualifies = threshold > 0 && paidCounts[type] >= threshold;
+            promotionsChanged = qualifies != (freeItems[type] != null);
         }
 
-        // Add a free pasta if 2 or more pastas ordered and free not yet applied
-        if (pastaCount >= 2 && !freePastaApplied) {
-            Pasta freePasta = new Pasta();
-            freePasta.setPrice(0.0); // Ensure free item has no cost
-            foodItems.add(freePasta);
-            freePastaApplied = true;
-            System.out.println("You've received a FREE Pasta for ordering 2 or more pastas!");
+        return new PriceQuote(orderId, totalCents, quotedCents, promotionsChanged);
+    }
+
+    /**
+     * Records a pricing step in the flight recorder, if it is recording pricing events.
+     */
+    private void commitPricingEvent(OrderPricingEvent event) {
+        if (event.shouldCommit()) {
+            event.orderId = orderId;
+            event.itemCount = foodItems.size();
+            event.commit();
         }
+    }
 
-        // Recalculate total with any new free items (added above)
+    /**
+     * Rebuilds the running tallies from the current item list.
+     */
+    private void recount() {
+        Arrays.fill(paidCounts, 0);
+        Arrays.fill(freeItems, null);
+        totalCents = 0;
         totalCost = 0;
+        Arrays.fill(mealTypeCounts, 0);
         for (FoodItem item : foodItems) {
-            totalCost += item.getPrice();
+            countItem(item, 1);
+        }
+    }
+
+    /**
+     * Adds a free item of the given type if the order newly qualifies for its promotion.
+     *
+     * @return True if a free item was added.
+     */
+    private boolean applyPromotion(int type) {
+        int threshold = FoodItemRegistry.getPromotionThreshold(type);
+        if (threshold == 0 || paidCounts[type] < threshold || freeItems[type] != null) return false;
+
+        FoodItem freeItem = FoodItemRegistry.newFreeItem(type); // Already marked free, with no cost
+        foodItems.add(freeItem);
+        countItem(freeItem, 1);
+        return true;
+    }
+
+    private static String promotionMessage(int type) {
+        String name = FoodItemRegistry.getName(type);
+        return "You've received a FREE " + name + " for ordering "
+                + FoodItemRegistry.getPromotionThreshold(type) + " or more " + name.toLowerCase() + "s!";
+    }
+
+    /**
+     * Adds (delta 1) or subtracts (delta -1) one item from the running tallies.
+     */
+    private void countItem(FoodItem item, int delta) {
+        int type = item.getTypeId();
+        if (type >= paidCounts.length) {
+            // A type registered after this order was created
+            paidCounts = Arrays.copyOf(paidCounts, FoodItemRegistry.size());
+            freeItems = Arrays.copyOf(freeItems, FoodItemRegistry.size());
+        }
+
+        if (item.isFree()) {
+            freeItems[type] = delta > 0 ? item : null;
+        } else {
+            paidCounts[type] += delta;
         }
+        if (item.getFoodType() != null) mealTypeCounts[item.getFoodType().ordinal()] += delta;
+
+        totalCents += delta * Math.round(item.getPrice() * 100);
+        totalCost = totalCents / 100.0;
+    }
+
+    /**
+     * Re-adds an item exactly as it appeared in a previously built order.
+     * Promotions are not applied again; a free item is recorded as its promotion instead.
+     * Used when rebuilding orders received from another node.
+     *
+     * @param item The food item to restore.
+     */
+    void restoreFoodItem(FoodItem item) {
+        foodItems.add(item);
+        countItem(item, 1);
+        updateMealType();
+    }
+
+    /**
+     * Sets the meal type from the running per-type item counts.
+     * Priority: MEAT > VEGETARIAN > VEGAN.
+     */
+    private void updateMealType() {
+        if (mealTypeCounts[FoodType.MEAT.ordinal()] > 0) mealType = FoodType.MEAT;
+        else if (mealTypeCounts[FoodType.VEGETARIAN.ordinal()] > 0) mealType = FoodType.VEGETARIAN;
+        else mealType = FoodType.VEGAN;
     }
 
     /**
@@ -118,7 +302,11 @@ public class Order {
      * @return A formatted string of the order.
      */
     public String toString() {
-        String result = "Customer Name: " + customerName + "\n"
+        OrderRenderEvent event = new OrderRenderEvent();
+        event.begin();
+
+        String result = "Order ID: " + orderId + "\n"
+                + "Customer Name: " + customerName + "\n"
                 + "Contact Number: " + customerContactNumber + "\n"
                 + "Delivery Address: " + customerDeliveryAddress + "\n\n";
 
@@ -128,21 +316,41 @@ public class Order {
         }
 
         // Mention applied discounts
-        if (freePizzaApplied) {
-            result += "You've received a FREE Pizza for ordering 2 or more pizzas!\n";
-        }
-        if (freePastaApplied) {
-            result += "You've received a FREE Pasta for ordering 2 or more pastas!\n";
+        for (int type = 0; type < freeItems.length; type++) {
+            if (freeItems[type] != null) result += promotionMessage(type) + "\n";
         }
 
         result += "Meal Type: " + mealType + "\n"
                 + "Total Cost: $" + String.format("%.2f", totalCost);
 
+        if (event.shouldCommit()) {
+            event.orderId = orderId;
+            event.length = result.length();
+            event.commit();
+        }
         return result;
     }
 
     // ================= Getters and Setters ================= //
 
+    /**
+     * Returns the unique id of the order.
+     *
+     * @return The order id.
+     */
+    public long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Returns when the order was taken. Copies made by OrderCodec keep the original time.
+     *
+     * @return The creation time in milliseconds since the epoch.
+     */
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
     /**
      * Returns the list of food items in the order.
      *
@@ -159,6 +367,7 @@ public class Order {
      */
     public void setFoodItems(ArrayList<FoodItem> foodItems) {
         this.foodItems = foodItems;
+        recount();
     }
 
     /**
@@ -232,4 +441,13 @@ public class Order {
     public void setMealType(FoodType mealType) {
         this.mealType = mealType;
     }
+
+    /**
+     * Returns the total cost of the order.
+     *
+     * @return The total cost, including free items at no cost.
+     */
+    public double getTotalCost() {
+        return totalCost;
+    }
 }
\ No newline at end of file
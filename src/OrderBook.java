@@ -0,0 +1,79 @@
+/**
+ * FIFO book of pending orders that can also cancel any order by id.
+ * Implemented on the heap by OrderQueue, off the heap by OffHeapOrderBook and across
+ * worker processes by PartitionedOrderStore.
+ * OrderQueue hands back the same Order objects that were added. The off-heap and partitioned
+ * books keep orders encoded and decode a new copy on every poll, peek, cancel, get and
+ * iteration, so two calls never return the same object and changes made to a returned order
+ * are not stored. Callers should compare orders by id, not by identity.
+ * Implementations are not thread-safe; callers synchronize on the book.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public interface OrderBook extends Iterable<Order> {
+
+    /**
+     * Adds an order to the back of the book.
+     *
+     * @param order the order to add
+     */
+    void add(Order order);
+
+    /**
+     * Removes and returns the oldest pending order.
+     *
+     * @return the oldest order, or null if the book is empty
+     */
+    Order poll();
+
+    /**
+     * Returns the oldest pending order without removing it.
+     *
+     * @return the oldest order, or null if the book is empty
+     */
+    Order peek();
+
+    /**
+     * Cancels a pending order wherever it is in the book.
+     *
+     * @param orderId the id of the order to cancel
+     * @return the cancelled order, or null if no pending order has that id
+     */
+    Order cancel(long orderId);
+
+    /**
+     * Looks up a pending order by id.
+     *
+     * @param orderId the order id
+     * @return the order, or null if no pending order has that id
+     */
+    Order get(long orderId);
+
+    /**
+     * Returns the number of pending orders.
+     *
+     * @return the number of orders
+     */
+    int size();
+
+    /**
+     * Checks whether there are no pending orders.
+     *
+     * @return true if the book is empty
+     */
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Adds several orders to the back of the book, in the given order.
+     *
+     * @param orders the orders to add
+     */
+    default void addAll(Iterable<Order> orders) {
+        for (Order order : orders) {
+            add(order);
+        }
+    }
+}
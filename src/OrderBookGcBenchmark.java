@@ -0,0 +1,155 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the heap size and garbage-collection pauses of OrderQueue and OffHeapOrderBook.
+ * Each book runs in its own JVM with the same fixed heap and GC logging on. The child fills
+ * the book with pending orders, measures the heap still in use after a full collection, and
+ * then keeps the book at that size for a while, adding a new order and delivering the oldest
+ * one in a loop, as a busy kitchen would. The parent reads the GC pauses of that steady phase
+ * from the log and prints the heap in use, the off-heap bytes reserved and pause percentiles.
+ * Usage: java OrderBookGcBenchmark [orders] [seconds] [heap]
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderBookGcBenchmark {
+
+    private static final Pattern PAUSE = Pattern.compile("Pause.* ([0-9.]+)ms$");
+
+    /**
+     * Runs both books and prints the comparison.
+     * With {@code --child BOOK ORDERS SECONDS} as arguments, runs one book instead.
+     *
+     * @param args optional number of pending orders, seconds of steady churn and heap size
+     *             such as 2g
+     * @throws Exception if a child JVM cannot be run
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && args[0].equals("--child")) {
+            runChild(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        String heap = args.length > 2 ? args[2] : "2g";
+
+        System.out.printf("%d pending orders, %d s steady churn, %s heap, G1%n", orders, seconds, heap);
+        System.out.println("book       heap MB  off-heap MB    ops/s  pauses   p50 ms   p99 ms p99.9 ms   max ms  total ms");
+        for (String book : new String[] {"heap", "off-heap"}) {
+            runBook(book, orders, seconds, heap);
+        }
+    }
+
+    // Runs one book in a child JVM and prints its line of the table
+    private static void runBook(String book, int orders, int seconds, String heap) throws Exception {
+        File log = File.createTempFile("order-book-gc", ".log");
+        try {
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            ProcessBuilder builder = new ProcessBuilder(java, "-Xms" + heap, "-Xmx" + heap, "-XX:+UseG1GC",
+                    "-Xlog:gc:file=" + log.getPath(), "-cp", System.getProperty("java.class.path"),
+                    "OrderBookGcBenchmark", "--child", book, String.valueOf(orders), String.valueOf(seconds));
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            Process process = builder.start();
+
+            String result = "";
+            try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    if (line.startsWith("result ")) result = line;
+                }
+            }
+            if (process.waitFor() != 0 || result.isEmpty()) {
+                throw new IOException("Benchmark JVM for " + book + " failed.");
+            }
+
+            // result HEAP_BYTES OFF_HEAP_BYTES OPS_PER_SECOND
+            String[] fields = result.split(" ");
+            double[] pauses = steadyPauses(Files.readAllLines(log.toPath()));
+            double total = 0;
+            for (double pause : pauses) {
+                total += pause;
+            }
+            System.out.printf("%-9s %8.0f %12.0f %8.0f %7d %8.2f %8.2f %8.2f %8.2f %9.1f%n", book,
+                    Long.parseLong(fields[1]) / 1048576.0, Long.parseLong(fields[2]) / 1048576.0,
+                    Double.parseDouble(fields[3]), pauses.length, percentile(pauses, 0.5),
+                    percentile(pauses, 0.99), percentile(pauses, 0.999), percentile(pauses, 1.0), total);
+        } finally {
+            log.delete();
+        }
+    }
+
+    // Pause times logged after the child's last System.gc(), which marks the start of the churn
+    private static double[] steadyPauses(List<String> lines) {
+        int start = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).contains("System.gc()")) start = i + 1;
+        }
+        ArrayList<Double> pauses = new ArrayList<>();
+        for (int i = start; i < lines.size(); i++) {
+            Matcher matcher = PAUSE.matcher(lines.get(i));
+            if (matcher.find()) pauses.add(Double.parseDouble(matcher.group(1)));
+        }
+        double[] sorted = new double[pauses.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = pauses.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static double percentile(double[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    // Child JVM: fills one book, measures the heap in use, then churns at a steady size
+    private static void runChild(String book, int orderCount, int seconds) {
+        OrderBook orders = book.equals("off-heap") ? new OffHeapOrderBook() : new OrderQueue();
+        Random random = new Random(42);
+        for (int i = 0; i < orderCount; i++) {
+            orders.add(newOrder(i, random));
+        }
+
+        System.gc();
+        System.gc();
+        long heapBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long offHeapBytes = orders instanceof OffHeapOrderBook ? ((OffHeapOrderBook) orders).getReservedBytes() : 0;
+
+        long operations = 0;
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        for (int i = orderCount; System.nanoTime() < end; i++) {
+            for (int j = 0; j < 100; j++) {
+                orders.add(newOrder(i * 100L + j, random));
+                orders.poll();
+            }
+            operations += 200;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.println("result " + heapBytes + " " + offHeapBytes + " " + Math.round(operations / elapsed));
+    }
+
+    // One pizza and one pasta, as most orders have
+    private static Order newOrder(long i, Random random) {
+        PizzaToppings[] pizzaToppings = PizzaToppings.values();
+        PastaTopping[] pastaToppings = PastaTopping.values();
+        Order order = new Order("Customer " + i, 10_000_000 + random.nextInt(90_000_000), i + " High Street");
+        ArrayList<PizzaToppings> toppings = new ArrayList<>();
+        toppings.add(pizzaToppings[random.nextInt(pizzaToppings.length)]);
+        order.addFoodItem(new Pizza(toppings), false);
+        order.addFoodItem(new Pasta(pastaToppings[random.nextInt(pastaToppings.length)]), false);
+        return order;
+    }
+}
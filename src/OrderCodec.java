@@ -0,0 +1,346 @@
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Compact binary format for orders and their food items.
+ * Layout (version 3):
+ * - byte    format version
+ * - int     body length in bytes, so readers can skip fields added by later versions
+ * - varint  contact number, meal type ordinal, total cost in cents, item count
+ * - string  customer name, then delivery address (varint UTF-8 length + bytes)
+ * - items   each as varint item length, then varint kind, flags, options, price in cents
+ * - varlong order id (added in version 2; version 1 orders get a fresh id when decoded)
+ * - varlong creation time in epoch milliseconds (added in version 3; older orders are
+ *   stamped with the time they are decoded)
+ * An item's kind is its FoodItemRegistry type id and its options are what its getOptionBits
+ * returns: for pizza a bitset of PizzaToppings ordinals, for pasta the topping's ordinal + 1
+ * (0 for none). Decoding rebuilds items through the registry, so any registered type can be
+ * encoded. Readers ignore trailing bytes they don't know in the body or an item.
+ * A pizza's topping bitset keeps each topping once, in PizzaToppings order, so a pizza built
+ * with a repeated topping or with toppings in another order decodes with a different topping
+ * list and prints differently. Its encoded price is kept, so the order's total is unchanged.
+ * See OrderCodecBenchmark for a size and speed comparison with JDK serialization.
+ * Encoding writes straight into the caller's buffer and allocates nothing.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public final class OrderCodec {
+
+    /** Current format version written by {@link #encode(Order, ByteBuffer)}. */
+    public static final byte VERSION = 3;
+
+    /** Item kind for a pizza; the same as its FoodItemRegistry type id. */
+    public static final int KIND_PIZZA = FoodItemRegistry.PIZZA;
+    /** Item kind for a pasta; the same as its FoodItemRegistry type id. */
+    public static final int KIND_PASTA = FoodItemRegistry.PASTA;
+
+    /** Item flag set for promotional free items. */
+    public static final int FLAG_FREE = 1;
+
+    // Cached so decoding doesn't clone the values() array for every lookup
+    static final FoodType[] FOOD_TYPES = FoodType.values();
+
+    private OrderCodec() {
+    }
+
+    /**
+     * Returns the exact number of bytes {@link #encode(Order, ByteBuffer)} will write.
+     *
+     * @param order the order to measure
+     * @return the encoded size in bytes
+     */
+    public static int encodedLength(Order order) {
+        return 1 + 4 + bodyLength(order);
+    }
+
+    /**
+     * Writes an order at the buffer's position and advances past it.
+     *
+     * @param order  the order to encode
+     * @param buffer the destination buffer
+     * @throws BufferOverflowException if the buffer does not have enough space remaining
+     */
+    public static void encode(Order order, ByteBuffer buffer) {
+        int bodyLength = bodyLength(order);
+        if (buffer.remaining() < 1 + 4 + bodyLength) {
+            throw new BufferOverflowException();
+        }
+
+        buffer.put(VERSION);
+        buffer.putInt(bodyLength);
+
+        ArrayList<FoodItem> items = order.getFoodItems();
+        putVarint(buffer, order.getCustomerContactNumber());
+        putVarint(buffer, order.getMealType().ordinal());
+        putVarint(buffer, toCents(order.getTotalCost()));
+        putVarint(buffer, items.size());
+        putString(buffer, order.getCustomerName());
+        putString(buffer, order.getCustomerDeliveryAddress());
+
+        for (int i = 0; i < items.size(); i++) {
+            FoodItem item = items.get(i);
+            int kind = item.getTypeId();
+            int flags = item.isFree() ? FLAG_FREE : 0;
+            int options = item.getOptionBits();
+            int cents = toCents(item.getPrice());
+
+            putVarint(buffer, varintLength(kind) + varintLength(flags) + varintLength(options) + varintLength(cents));
+            putVarint(buffer, kind);
+            putVarint(buffer, flags);
+            putVarint(buffer, options);
+            putVarint(buffer, cents);
+        }
+
+        putVarlong(buffer, order.getOrderId());
+        putVarlong(buffer, order.getCreatedAtMillis());
+    }
+
+    /**
+     * Reads an order at the buffer's position and advances past it.
+     *
+     * @param buffer the source buffer
+     * @return the decoded order, with item prices and free items exactly as encoded
+     * @throws IllegalArgumentException if the data is not a valid encoded order
+     */
+    public static Order decode(ByteBuffer buffer) {
+        try {
+            byte version = buffer.get();
+            if (version < 1) {
+                throw new IllegalArgumentException("Unknown order format version: " + version);
+            }
+            int bodyLength = buffer.getInt();
+            int bodyEnd = buffer.position() + bodyLength;
+
+            int contactNumber = getVarint(buffer);
+            getVarint(buffer); // Meal type, recomputed from the items
+            getVarint(buffer); // Total cost, recomputed from the items
+            int itemCount = getVarint(buffer);
+            String name = getString(buffer);
+            String address = getString(buffer);
+
+            // The order id follows the items, so skip over them to read it first
+            int itemsStart = buffer.position();
+            Order order;
+            if (version >= 2) {
+                for (int i = 0; i < itemCount; i++) {
+                    int itemLength = getVarint(buffer);
+                    buffer.position(buffer.position() + itemLength);
+                }
+                long orderId = getVarlong(buffer);
+                if (version >= 3) order = new Order(orderId, getVarlong(buffer), name, contactNumber, address);
+                else order = new Order(orderId, name, contactNumber, address);
+                buffer.position(itemsStart);
+            } else {
+                order = new Order(name, contactNumber, address);
+            }
+
+            for (int i = 0; i < itemCount; i++) {
+                int itemLength = getVarint(buffer);
+                int itemEnd = buffer.position() + itemLength;
+
+                int kind = getVarint(buffer);
+                int flags = getVarint(buffer);
+                int options = getVarint(buffer);
+                int cents = getVarint(buffer);
+
+                FoodItem item = FoodItemRegistry.newItem(kind, options);
+                if ((flags & FLAG_FREE) != 0) item.markFree();
+                else item.setPrice(cents / 100.0);
+                order.restoreFoodItem(item);
+
+                buffer.position(itemEnd);
+            }
+
+            buffer.position(bodyEnd);
+            return order;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated or corrupt order data", e);
+        }
+    }
+
+    // ================= Field helpers ================= //
+
+    static int toCents(double amount) {
+        return (int) Math.round(amount * 100);
+    }
+
+    private static int bodyLength(Order order) {
+        ArrayList<FoodItem> items = order.getFoodItems();
+        int length = varintLength(order.getCustomerContactNumber())
+                + varintLength(order.getMealType().ordinal())
+                + varintLength(toCents(order.getTotalCost()))
+                + varintLength(items.size())
+                + stringLength(order.getCustomerName())
+                + stringLength(order.getCustomerDeliveryAddress());
+
+        for (int i = 0; i < items.size(); i++) {
+            FoodItem item = items.get(i);
+            int itemLength = varintLength(item.getTypeId())
+                    + varintLength(item.isFree() ? FLAG_FREE : 0)
+                    + varintLength(item.getOptionBits())
+                    + varintLength(toCents(item.getPrice()));
+            length += varintLength(itemLength) + itemLength;
+        }
+        return length + varlongLength(order.getOrderId()) + varlongLength(order.getCreatedAtMillis());
+    }
+
+    // ================= Varints and strings ================= //
+
+    /**
+     * Writes an int as an unsigned LEB128 varint (1 to 5 bytes).
+     */
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint written by {@link #putVarint(ByteBuffer, int)}.
+     */
+    static int getVarint(ByteBuffer buffer) {
+        return getVarint(buffer, buffer.position(), true);
+    }
+
+    /**
+     * Reads a varint at an absolute index, optionally advancing the buffer's position past it.
+     */
+    static int getVarint(ByteBuffer buffer, int index, boolean advance) {
+        int value = 0;
+        int shift = 0;
+        int i = index;
+        while (true) {
+            byte b = buffer.get(i++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) break;
+            shift += 7;
+            if (shift > 28) throw new IllegalArgumentException("Varint too long");
+        }
+        if (advance) buffer.position(i);
+        return value;
+    }
+
+    /**
+     * Writes a long as an unsigned LEB128 varint (1 to 10 bytes).
+     */
+    static void putVarlong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint written by {@link #putVarlong(ByteBuffer, long)}.
+     */
+    static long getVarlong(ByteBuffer buffer) {
+        long value = getVarlong(buffer, buffer.position());
+        buffer.position(buffer.position() + varlongLength(value));
+        return value;
+    }
+
+    /**
+     * Reads a varlong at an absolute index without moving the buffer's position.
+     */
+    static long getVarlong(ByteBuffer buffer, int index) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = buffer.get(index++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+            shift += 7;
+            if (shift > 63) throw new IllegalArgumentException("Varlong too long");
+        }
+    }
+
+    static int varlongLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    static int varintLength(int value) {
+        if ((value & ~0x7F) == 0) return 1;
+        if ((value & ~0x3FFF) == 0) return 2;
+        if ((value & ~0x1FFFFF) == 0) return 3;
+        if ((value & ~0xFFFFFFF) == 0) return 4;
+        return 5;
+    }
+
+    private static int stringLength(String s) {
+        int bytes = utf8Length(s);
+        return varintLength(bytes) + bytes;
+    }
+
+    static int utf8Length(String s) {
+        int bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) bytes += 1;
+            else if (c < 0x800) bytes += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else bytes += 3;
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes a string as a varint byte length followed by its UTF-8 bytes, char by char.
+     */
+    private static void putString(ByteBuffer buffer, String s) {
+        putVarint(buffer, utf8Length(s));
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buffer.put((byte) (0xF0 | (cp >> 18)));
+                buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (cp & 0x3F)));
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = getVarint(buffer);
+        String s = decodeUtf8(buffer, buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return s;
+    }
+
+    /**
+     * Decodes UTF-8 bytes at an absolute index without moving the buffer's position.
+     */
+    static String decodeUtf8(ByteBuffer buffer, int index, int length) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + index, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(index, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
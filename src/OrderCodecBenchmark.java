@@ -0,0 +1,222 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares OrderCodec with JDK serialization for the size of an encoded order and the time
+ * to encode and decode it. JDK serialization writes a Serializable mirror of each order,
+ * one ObjectOutputStream per order as a replication or partition message would need, and
+ * reading rebuilds the Order from the mirror. Both sides are checked to round-trip every
+ * order before they are timed.
+ * Usage: java OrderCodecBenchmark [orders] [rounds]
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderCodecBenchmark {
+
+    /**
+     * Runs the comparison and prints bytes per order and time per order for each format.
+     *
+     * @param args optional number of orders and number of timed rounds
+     * @throws Exception if JDK serialization fails
+     */
+    public static void main(String[] args) throws Exception {
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        ArrayList<Order> orders = buildOrders(orderCount, new Random(42));
+
+        byte[][] codecBytes = new byte[orderCount][];
+        byte[][] jdkBytes = new byte[orderCount][];
+        long codecTotal = 0;
+        long jdkTotal = 0;
+        for (int i = 0; i < orderCount; i++) {
+            codecBytes[i] = encodeWithCodec(orders.get(i), ByteBuffer.allocate(4096));
+            jdkBytes[i] = encodeWithJdk(orders.get(i));
+            codecTotal += codecBytes[i].length;
+            jdkTotal += jdkBytes[i].length;
+            if (!sameOrder(orders.get(i), OrderCodec.decode(ByteBuffer.wrap(codecBytes[i])))
+                    || !sameOrder(orders.get(i), decodeWithJdk(jdkBytes[i]))) {
+                System.out.println("Order " + orders.get(i).getOrderId() + " did not round-trip.");
+                System.exit(1);
+            }
+        }
+
+        long[] codecTimes = time(orders, codecBytes, jdkBytes, rounds, true);
+        long[] jdkTimes = time(orders, codecBytes, jdkBytes, rounds, false);
+
+        System.out.printf("%d orders, best of %d rounds%n", orderCount, rounds);
+        System.out.println("format          bytes/order   encode ns   decode ns");
+        System.out.printf("OrderCodec      %11.1f %11.0f %11.0f%n", (double) codecTotal / orderCount,
+                (double) codecTimes[0] / orderCount, (double) codecTimes[1] / orderCount);
+        System.out.printf("JDK serializer  %11.1f %11.0f %11.0f%n", (double) jdkTotal / orderCount,
+                (double) jdkTimes[0] / orderCount, (double) jdkTimes[1] / orderCount);
+    }
+
+    // Best total encode and decode time over all orders, after a warm-up round
+    private static long[] time(ArrayList<Order> orders, byte[][] codecBytes, byte[][] jdkBytes,
+                               int rounds, boolean codec) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long bestEncode = Long.MAX_VALUE;
+        long bestDecode = Long.MAX_VALUE;
+        long sink = 0;
+        for (int round = 0; round <= rounds; round++) {
+            long start = System.nanoTime();
+            for (Order order : orders) {
+                if (codec) {
+                    buffer.clear();
+                    OrderCodec.encode(order, buffer);
+                    sink += buffer.position();
+                } else {
+                    sink += encodeWithJdk(order).length;
+                }
+            }
+            long encode = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < orders.size(); i++) {
+                Order decoded = codec ? OrderCodec.decode(ByteBuffer.wrap(codecBytes[i])) : decodeWithJdk(jdkBytes[i]);
+                sink += decoded.getOrderId();
+            }
+            long decode = System.nanoTime() - start;
+
+            if (round > 0) { // Round 0 warms up
+                bestEncode = Math.min(bestEncode, encode);
+                bestDecode = Math.min(bestDecode, decode);
+            }
+        }
+        if (sink == 42) System.out.println(); // Keeps the work from being optimised away
+        return new long[] {bestEncode, bestDecode};
+    }
+
+    private static byte[] encodeWithCodec(Order order, ByteBuffer buffer) {
+        OrderCodec.encode(order, buffer);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static byte[] encodeWithJdk(Order order) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new SerializableOrder(order));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Order decodeWithJdk(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ((SerializableOrder) in.readObject()).toOrder();
+        }
+    }
+
+    // Same id, creation time, customer, items (as printed) and total
+    private static boolean sameOrder(Order a, Order b) {
+        return a.getOrderId() == b.getOrderId()
+                && a.getCreatedAtMillis() == b.getCreatedAtMillis()
+                && a.getCustomerName().equals(b.getCustomerName())
+                && a.getCustomerContactNumber() == b.getCustomerContactNumber()
+                && a.getCustomerDeliveryAddress().equals(b.getCustomerDeliveryAddress())
+                && a.getFoodItems().toString().equals(b.getFoodItems().toString())
+                && OrderCodec.toCents(a.getTotalCost()) == OrderCodec.toCents(b.getTotalCost());
+    }
+
+    // One to four pizzas and pastas per order, with pizza toppings in menu order
+    private static ArrayList<Order> buildOrders(int count, Random random) {
+        PizzaToppings[] pizzaToppings = PizzaToppings.values();
+        PastaTopping[] pastaToppings = PastaTopping.values();
+        ArrayList<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Order order = new Order("Customer " + i, 10_000_000 + random.nextInt(90_000_000),
+                    (1 + random.nextInt(200)) + " High Street, Flat " + random.nextInt(40));
+            int items = 1 + random.nextInt(4);
+            for (int j = 0; j < items; j++) {
+                if (random.nextBoolean()) {
+                    ArrayList<PizzaToppings> toppings = new ArrayList<>();
+                    for (PizzaToppings topping : pizzaToppings) {
+                        if (random.nextInt(3) == 0) toppings.add(topping);
+                    }
+                    order.addFoodItem(new Pizza(toppings), false);
+                } else {
+                    order.addFoodItem(new Pasta(pastaToppings[random.nextInt(pastaToppings.length)]), false);
+                }
+            }
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    /**
+     * Serializable copy of an order, written by JDK serialization.
+     */
+    private static final class SerializableOrder implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final long orderId;
+        private final long createdAtMillis;
+        private final String customerName;
+        private final int contactNumber;
+        private final String deliveryAddress;
+        private final FoodType mealType;
+        private final long totalCents;
+        private final SerializableItem[] items;
+
+        private SerializableOrder(Order order) {
+            this.orderId = order.getOrderId();
+            this.createdAtMillis = order.getCreatedAtMillis();
+            this.customerName = order.getCustomerName();
+            this.contactNumber = order.getCustomerContactNumber();
+            this.deliveryAddress = order.getCustomerDeliveryAddress();
+            this.mealType = order.getMealType();
+            this.totalCents = OrderCodec.toCents(order.getTotalCost());
+            ArrayList<FoodItem> foodItems = order.getFoodItems();
+            this.items = new SerializableItem[foodItems.size()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = new SerializableItem(foodItems.get(i));
+            }
+        }
+
+        private Order toOrder() {
+            Order order = new Order(orderId, createdAtMillis, customerName, contactNumber, deliveryAddress);
+            for (SerializableItem item : items) {
+                order.restoreFoodItem(item.toFoodItem());
+            }
+            return order;
+        }
+    }
+
+    /**
+     * Serializable copy of a pizza or pasta.
+     */
+    private static final class SerializableItem implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean pizza;
+        private final PizzaToppings[] pizzaToppings;
+        private final PastaTopping pastaTopping;
+        private final boolean free;
+        private final int cents;
+
+        private SerializableItem(FoodItem item) {
+            this.pizza = item instanceof Pizza;
+            this.pizzaToppings = pizza ? ((Pizza) item).getToppings().toArray(new PizzaToppings[0]) : null;
+            this.pastaTopping = pizza ? null : ((Pasta) item).getTopping();
+            this.free = item.isFree();
+            this.cents = OrderCodec.toCents(item.getPrice());
+        }
+
+        private FoodItem toFoodItem() {
+            FoodItem item;
+            if (pizza) item = new Pizza(new ArrayList<>(Arrays.asList(pizzaToppings)));
+            else item = pastaTopping == null ? new Pasta() : new Pasta(pastaTopping);
+            if (free) item.markFree();
+            else item.setPrice(cents / 100.0);
+            return item;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, time-limited cache of idempotency keys used to detect retried order submissions.
+ * Keys are spread over independently locked segments so concurrent submissions rarely
+ * contend. Each segment keeps its entries in insertion order, which lets expired keys be
+ * dropped from the head and the oldest key be evicted once the segment is full.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderDedupeCache {
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final int segmentCapacity;
+    private final long ttlNanos;
+
+    /**
+     * Constructs a cache holding roughly {@code capacity} keys for {@code ttlMillis} each.
+     *
+     * @param capacity     the maximum number of keys remembered across all segments
+     * @param ttlMillis    how long a key is remembered after its first submission
+     * @param segmentCount the number of segments, rounded up to a power of two
+     */
+    public OrderDedupeCache(int capacity, long ttlMillis, int segmentCount) {
+        if (capacity <= 0 || ttlMillis <= 0 || segmentCount <= 0) {
+            throw new IllegalArgumentException("Capacity, TTL and segment count must be positive.");
+        }
+
+        int segmentTotal = 1;
+        while (segmentTotal < segmentCount) {
+            segmentTotal <<= 1;
+        }
+
+        this.segments = new Segment[segmentTotal];
+        for (int i = 0; i < segmentTotal; i++) {
+            segments[i] = new Segment();
+        }
+        this.segmentMask = segmentTotal - 1;
+        this.segmentCapacity = Math.max(1, capacity / segmentTotal);
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    /**
+     * Records the order under the given key unless the key is already known.
+     *
+     * @param key   the idempotency key supplied with the submission
+     * @param order the order built for this submission
+     * @return the order previously stored under the key, or null if this is the first submission
+     */
+    public Order putIfAbsent(String key, Order order) {
+        long now = System.nanoTime();
+        Segment segment = segments[spread(key.hashCode()) & segmentMask];
+
+        synchronized (segment) {
+            segment.purgeExpired(now);
+
+            Entry existing = segment.entries.get(key);
+            if (existing != null) {
+                return existing.order;
+            }
+
+            segment.entries.put(key, new Entry(order, now + ttlNanos));
+            if (segment.entries.size() > segmentCapacity) {
+                Iterator<Entry> eldest = segment.entries.values().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Returns the order stored under the given key, without recording anything.
+     *
+     * @param key the idempotency key supplied with the submission
+     * @return the order stored under the key, or null if the key is not known
+     */
+    public Order get(String key) {
+        long now = System.nanoTime();
+        Segment segment = segments[spread(key.hashCode()) & segmentMask];
+
+        synchronized (segment) {
+            segment.purgeExpired(now);
+            Entry existing = segment.entries.get(key);
+            return existing == null ? null : existing.order;
+        }
+    }
+
+    /**
+     * Forgets the given key so a later submission with it is treated as new.
+     *
+     * @param key the idempotency key to remove
+     */
+    public void remove(String key) {
+        Segment segment = segments[spread(key.hashCode()) & segmentMask];
+        synchronized (segment) {
+            segment.entries.remove(key);
+        }
+    }
+
+    /**
+     * Returns the number of keys currently remembered, including any not yet purged.
+     *
+     * @return the number of stored keys
+     */
+    public int size() {
+        int total = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                total += segment.entries.size();
+            }
+        }
+        return total;
+    }
+
+    // Mixes high bits into the low bits used for segment selection
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * One independently locked slice of the cache.
+     */
+    private static final class Segment {
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+        /**
+         * Drops expired keys from the head. Entries are in insertion order and share one TTL,
+         * so the first unexpired entry ends the scan.
+         */
+        private void purgeExpired(long now) {
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().getValue().expiresAt - now > 0) break;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * A remembered submission and the time it stops being remembered.
+     */
+    private static final class Entry {
+        private final Order order;
+        private final long expiresAt;
+
+        private Entry(Order order, long expiresAt) {
+            this.order = order;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
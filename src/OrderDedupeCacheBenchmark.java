@@ -0,0 +1,150 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Multi-threaded latency benchmark for OrderDedupeCache.
+ * For each thread count, every thread submits its own stream of idempotency keys to one
+ * shared cache sized like TakeawayDriver's, with a tenth of the submissions retrying one
+ * of the thread's recent keys. Every sixteenth call is timed on its own, and the report
+ * gives the throughput across all threads and the latency percentiles of a single call.
+ * Usage: java OrderDedupeCacheBenchmark [submissionsPerThread] [threadCounts...]
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderDedupeCacheBenchmark {
+
+    private static final int SAMPLE_EVERY = 16;
+    private static final double RETRY_PROBABILITY = 0.1;
+
+    /**
+     * Runs the benchmark for each thread count and prints the results.
+     *
+     * @param args optional submissions per thread, then the thread counts to try (default 1 2 4 8)
+     * @throws Exception if a benchmark thread fails
+     */
+    public static void main(String[] args) throws Exception {
+        int submissions = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        ArrayList<Integer> threadCounts = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            threadCounts.add(Integer.parseInt(args[i]));
+        }
+        if (threadCounts.isEmpty()) {
+            threadCounts.add(1);
+            threadCounts.add(2);
+            threadCounts.add(4);
+            threadCounts.add(8);
+        }
+
+        run(1, submissions); // Warm-up
+
+        System.out.printf("%d available processors%n", Runtime.getRuntime().availableProcessors());
+        System.out.println("threads      calls/s     p50 ns     p99 ns   p99.9 ns");
+        for (int threads : threadCounts) {
+            Result result = run(threads, submissions);
+            System.out.printf("%7d %12.0f %10d %10d %10d%n", threads, result.callsPerSecond,
+                    result.percentile(0.5), result.percentile(0.99), result.percentile(0.999));
+        }
+    }
+
+    // Starts the threads together on a fresh cache and merges their timings
+    private static Result run(int threadCount, int submissions) throws Exception {
+        OrderDedupeCache cache = new OrderDedupeCache(10_000, 15 * 60 * 1000L, 16);
+        Order order = new Order("Benchmark", 12345678, "1 High Street");
+        CyclicBarrier start = new CyclicBarrier(threadCount + 1);
+
+        Submitter[] submitters = new Submitter[threadCount];
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            submitters[t] = new Submitter(t, cache, order, submissions, start);
+            threads[t] = new Thread(submitters[t], "submitter-" + t);
+            threads[t].start();
+        }
+
+        start.await();
+        long began = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+
+        long[] latencies = new long[0];
+        for (Submitter submitter : submitters) {
+            if (submitter.failure != null) throw submitter.failure;
+            int from = latencies.length;
+            latencies = Arrays.copyOf(latencies, from + submitter.latencies.length);
+            System.arraycopy(submitter.latencies, 0, latencies, from, submitter.latencies.length);
+        }
+        Arrays.sort(latencies);
+        return new Result((double) threadCount * submissions / seconds, latencies);
+    }
+
+    /**
+     * One submitting thread, with its keys built before the timed run.
+     */
+    private static final class Submitter implements Runnable {
+        private final OrderDedupeCache cache;
+        private final Order order;
+        private final CyclicBarrier start;
+        private final String[] keys;
+        private final int[] retryOf; // Index of the earlier key retried, or -1 for a new key
+        private final long[] latencies;
+        private Exception failure;
+
+        private Submitter(int id, OrderDedupeCache cache, Order order, int submissions, CyclicBarrier start) {
+            this.cache = cache;
+            this.order = order;
+            this.start = start;
+            this.keys = new String[submissions];
+            this.retryOf = new int[submissions];
+            this.latencies = new long[submissions / SAMPLE_EVERY];
+
+            Random random = new Random(id);
+            for (int i = 0; i < submissions; i++) {
+                keys[i] = "tablet-" + id + "-" + i;
+                retryOf[i] = i > 0 && random.nextDouble() < RETRY_PROBABILITY
+                        ? Math.max(0, i - 1 - random.nextInt(100)) : -1;
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+                int sample = 0;
+                for (int i = 0; i < keys.length; i++) {
+                    String key = retryOf[i] < 0 ? keys[i] : keys[retryOf[i]];
+                    if (i % SAMPLE_EVERY == 0 && sample < latencies.length) {
+                        long before = System.nanoTime();
+                        cache.putIfAbsent(key, order);
+                        latencies[sample++] = System.nanoTime() - before;
+                    } else {
+                        cache.putIfAbsent(key, order);
+                    }
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Throughput and sorted call latencies for one thread count.
+     */
+    private static final class Result {
+        private final double callsPerSecond;
+        private final long[] sortedLatencies;
+
+        private Result(double callsPerSecond, long[] sortedLatencies) {
+            this.callsPerSecond = callsPerSecond;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        private long percentile(double p) {
+            if (sortedLatencies.length == 0) return 0;
+            return sortedLatencies[Math.min(sortedLatencies.length - 1, (int) (p * sortedLatencies.length))];
+        }
+    }
+}
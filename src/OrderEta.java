@@ -0,0 +1,65 @@
+/**
+ * Estimated ready and delivery times for one queued order, from OrderEtaService.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderEta {
+
+    private final long orderId;
+    private final long readyAtMillis;
+    private final long deliveryAtMillis;
+
+    OrderEta(long orderId, long readyAtMillis, long deliveryAtMillis) {
+        this.orderId = orderId;
+        this.readyAtMillis = readyAtMillis;
+        this.deliveryAtMillis = deliveryAtMillis;
+    }
+
+    /**
+     * Returns the id of the order.
+     *
+     * @return the order id
+     */
+    public long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Returns when the order is expected to leave the kitchen.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getReadyAtMillis() {
+        return readyAtMillis;
+    }
+
+    /**
+     * Returns when the order is expected to reach the customer.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getDeliveryAtMillis() {
+        return deliveryAtMillis;
+    }
+
+    /**
+     * Returns the whole minutes from a given time until the order is ready, rounded up.
+     *
+     * @param nowMillis the time to measure from
+     * @return the minutes until ready, 0 if it should already be ready
+     */
+    public long minutesUntilReady(long nowMillis) {
+        return Math.max(0, (readyAtMillis - nowMillis + 59_999) / 60_000);
+    }
+
+    /**
+     * Returns the whole minutes from a given time until the order is delivered, rounded up.
+     *
+     * @param nowMillis the time to measure from
+     * @return the minutes until delivery
+     */
+    public long minutesUntilDelivery(long nowMillis) {
+        return Math.max(0, (deliveryAtMillis - nowMillis + 59_999) / 60_000);
+    }
+}
@@ -0,0 +1,228 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Keeps an estimated ready and delivery time for every order in the queue.
+ * Each queued order takes the next position in a Fenwick (binary indexed) tree holding
+ * its preparation time, the sum of FoodItemRegistry prep minutes over its items. The
+ * work ahead of an order, itself included, is then a prefix sum over positions, read in
+ * O(log n) without walking the queue. Delivered and cancelled orders are zeroed out of
+ * the tree; once positions run out, the live orders are packed to the front and the tree
+ * is rebuilt in linear time, so every update is O(log n) amortised.
+ * Work is turned into time with the kitchen's observed rate, in prep minutes completed
+ * per minute. Each delivery made while the queue was busy gives a sample: the work done
+ * over the last few such deliveries divided by the time they span, so a driver collecting
+ * several orders at once does not look like a burst of cooking. Samples are held within a
+ * few times the initial rate either way and smoothed.
+ * See OrderEtaServiceCheck for a comparison with a brute-force walk of the queue.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderEtaService {
+
+    private static final double SMOOTHING = 0.2; // Weight of the newest observed rate
+    private static final int RATE_WINDOW = 8; // Deliveries each rate sample is measured over
+    private static final double MAX_RATE_FACTOR = 4; // Samples stay within this factor of the initial rate
+    private static final long MILLIS_PER_MINUTE = 60_000;
+
+    private final long deliveryMillis;
+    private final double initialKitchenRate;
+
+    // Fenwick tree over positions 1..capacity of each order's prep time in milliseconds
+    private long[] tree = new long[17];
+    private long[] prepAt = new long[17];   // Prep time at each position, 0 once the order has left
+    private long[] orderIdAt = new long[17];
+    private int nextPosition = 1;
+    private final HashMap<Long, Integer> positionByOrderId = new HashMap<>();
+
+    private double kitchenRate;       // Prep minutes completed per minute
+    private long lastDeliveryMillis;  // 0 while the kitchen may have been idle
+
+    // Ring of the latest deliveries since the kitchen was last idle; the work they span excludes the oldest
+    private final long[] windowMillis = new long[RATE_WINDOW + 1];
+    private final long[] windowPrep = new long[RATE_WINDOW + 1];
+    private int windowStart;
+    private int windowSize;
+    private long windowWork;
+
+    /**
+     * Constructs a service.
+     *
+     * @param initialKitchenRate the prep minutes the kitchen gets through per minute until
+     *                           deliveries have been observed, roughly its number of cooks
+     * @param deliveryMinutes    the minutes from leaving the kitchen to reaching the customer
+     */
+    public OrderEtaService(double initialKitchenRate, double deliveryMinutes) {
+        if (initialKitchenRate <= 0 || deliveryMinutes < 0) {
+            throw new IllegalArgumentException("Kitchen rate must be positive and delivery time non-negative.");
+        }
+        this.initialKitchenRate = initialKitchenRate;
+        this.kitchenRate = initialKitchenRate;
+        this.deliveryMillis = (long) (deliveryMinutes * MILLIS_PER_MINUTE);
+    }
+
+    /**
+     * Adds an order at the back of the queue.
+     *
+     * @param order the order
+     */
+    public synchronized void add(Order order) {
+        if (positionByOrderId.containsKey(order.getOrderId())) return;
+        if (nextPosition == tree.length) compact();
+
+        long prep = prepMillis(order);
+        int position = nextPosition++;
+        prepAt[position] = prep;
+        orderIdAt[position] = order.getOrderId();
+        update(position, prep);
+        positionByOrderId.put(order.getOrderId(), position);
+    }
+
+    /**
+     * Removes an order that was cancelled.
+     *
+     * @param orderId the order id
+     * @return true if the order was queued
+     */
+    public synchronized boolean remove(long orderId) {
+        Integer position = positionByOrderId.remove(orderId);
+        if (position == null) return false;
+        update(position, -prepAt[position]);
+        prepAt[position] = 0;
+        return true;
+    }
+
+    /**
+     * Removes an order that has left the kitchen and updates the observed kitchen rate.
+     *
+     * @param orderId        the order id
+     * @param nowMillis      the current time in milliseconds
+     * @param remainingDepth the number of orders still queued afterwards
+     */
+    public synchronized void recordDelivery(long orderId, long nowMillis, int remainingDepth) {
+        Integer position = positionByOrderId.get(orderId);
+        long prep = position == null ? 0 : prepAt[position];
+        remove(orderId);
+
+        // Only intervals while the queue was busy say how fast the kitchen works
+        if (lastDeliveryMillis == 0) windowSize = 0;
+        if (prep > 0) observe(prep, nowMillis);
+        lastDeliveryMillis = remainingDepth == 0 ? 0 : nowMillis;
+    }
+
+    // Adds a delivery to the window and, once it spans some time, smooths its rate into the kitchen rate
+    private void observe(long prep, long nowMillis) {
+        if (windowSize > 0 && nowMillis < windowMillis[(windowStart + windowSize - 1) % windowMillis.length]) return;
+        if (windowSize == windowMillis.length) {
+            windowStart = (windowStart + 1) % windowMillis.length;
+            windowSize--;
+            windowWork -= windowPrep[windowStart]; // Done before the new oldest delivery
+        }
+        int slot = (windowStart + windowSize) % windowMillis.length;
+        windowMillis[slot] = nowMillis;
+        windowPrep[slot] = prep;
+        if (windowSize == 0) windowWork = 0; // Work on the first order may have started before the queue was busy
+        else windowWork += prep;
+        windowSize++;
+
+        long span = nowMillis - windowMillis[windowStart];
+        if (span > 0) {
+            double rate = (double) windowWork / span;
+            rate = Math.max(initialKitchenRate / MAX_RATE_FACTOR, Math.min(initialKitchenRate * MAX_RATE_FACTOR, rate));
+            kitchenRate += SMOOTHING * (rate - kitchenRate);
+        }
+    }
+
+    /**
+     * Estimates when a queued order will be ready and delivered.
+     *
+     * @param orderId   the order id
+     * @param nowMillis the current time in milliseconds
+     * @return the estimate, or null if the order is not queued
+     */
+    public synchronized OrderEta estimate(long orderId, long nowMillis) {
+        Integer position = positionByOrderId.get(orderId);
+        if (position == null) return null;
+
+        // Work since the last delivery has already been done on the orders ahead
+        double workAhead = prefixSum(position);
+        if (lastDeliveryMillis != 0) {
+            workAhead = Math.max(0, workAhead - kitchenRate * (nowMillis - lastDeliveryMillis));
+        }
+        long readyAt = nowMillis + (long) (workAhead / kitchenRate);
+        return new OrderEta(orderId, readyAt, readyAt + deliveryMillis);
+    }
+
+    /**
+     * Returns the observed kitchen rate.
+     *
+     * @return the prep minutes completed per minute
+     */
+    public synchronized double getKitchenRate() {
+        return kitchenRate;
+    }
+
+    /**
+     * Returns the number of queued orders being tracked.
+     *
+     * @return the order count
+     */
+    public synchronized int size() {
+        return positionByOrderId.size();
+    }
+
+    // Free items are cooked too, so every item counts
+    private static long prepMillis(Order order) {
+        double minutes = 0;
+        for (FoodItem item : order.getFoodItems()) {
+            minutes += FoodItemRegistry.getPrepMinutes(item.getTypeId());
+        }
+        return (long) (minutes * MILLIS_PER_MINUTE);
+    }
+
+    // ================= Fenwick tree ================= //
+
+    private void update(int position, long delta) {
+        for (int i = position; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private long prefixSum(int position) {
+        long sum = 0;
+        for (int i = position; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Packs the live orders to the front, growing if they fill more than half, and rebuilds the tree
+    private void compact() {
+        int live = positionByOrderId.size();
+        int capacity = tree.length - 1;
+        if (live * 2 > capacity) capacity *= 2;
+
+        long[] packedPrep = new long[capacity + 1];
+        long[] packedIds = new long[capacity + 1];
+        int packed = 1;
+        for (int position = 1; position < nextPosition; position++) {
+            Integer current = positionByOrderId.get(orderIdAt[position]);
+            if (current == null || current != position) continue; // Delivered or cancelled
+            packedPrep[packed] = prepAt[position];
+            packedIds[packed] = orderIdAt[position];
+            positionByOrderId.put(orderIdAt[position], packed);
+            packed++;
+        }
+
+        // Linear-time build: each node passes its sum up to its parent
+        tree = Arrays.copyOf(packedPrep, capacity + 1);
+        for (int i = 1; i <= capacity; i++) {
+            int parent = i + (i & -i);
+            if (parent <= capacity) tree[parent] += tree[i];
+        }
+        prepAt = packedPrep;
+        orderIdAt = packedIds;
+        nextPosition = packed;
+    }
+}
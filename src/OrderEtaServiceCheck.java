@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks OrderEtaService against a brute-force model over a long random run of queue
+ * operations: orders are added, cancelled, delivered in order or in batches a second
+ * apart, as when a driver collects several at once, and estimated. Busy spells, when
+ * orders come in faster than they leave, alternate with quiet ones, so the queue grows
+ * to thousands of orders and drains again. The model walks its queue to add up the work
+ * ahead of an order, and every estimate must match it exactly with the service's kitchen
+ * rate. The rate must also stay within the service's bounds around the initial rate.
+ * Finally a kitchen delivering steadily at its initial rate hands a driver two orders a
+ * second apart, which must barely move the rate.
+ * Exits with status 1 on the first mismatch.
+ * Usage: java OrderEtaServiceCheck [operations] [seed]
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderEtaServiceCheck {
+
+    private static final double COOKS = 2.0;
+    private static final double DELIVERY_MINUTES = 20;
+
+    /**
+     * Runs the operations and prints how many of each were checked and the range of the kitchen rate.
+     *
+     * @param args optional number of operations and random seed
+     */
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Random random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 42);
+
+        OrderEtaService service = new OrderEtaService(COOKS, DELIVERY_MINUTES);
+        LinkedHashMap<Long, Long> queue = new LinkedHashMap<>(); // Order id to prep millis, in queue order
+        ArrayList<Order> added = new ArrayList<>();
+        long lastDeliveryMillis = 0;
+        long now = 1_000_000;
+        long estimates = 0;
+        long deliveries = 0;
+        long batched = 0;
+        double minRate = COOKS;
+        double maxRate = COOKS;
+        int maxQueued = 0;
+
+        for (int op = 0; op < operations; op++) {
+            int addPercent = op / 20_000 % 2 == 0 ? 45 : 30; // Busy and quiet spells
+            int pick = random.nextInt(100);
+            if (pick < addPercent || queue.isEmpty()) {
+                Order order = pick == 0 && !added.isEmpty() ? added.get(random.nextInt(added.size())) : newOrder(random);
+                service.add(order); // Adding an order twice keeps its place
+                if (!queue.containsKey(order.getOrderId())) {
+                    queue.put(order.getOrderId(), prepMillis(order));
+                    added.add(order);
+                }
+                now += random.nextInt(60_000);
+            } else if (pick < addPercent + 5) {
+                long id = randomQueued(queue, random);
+                if (service.remove(id) != (queue.remove(id) != null)) fail("cancel of " + id);
+                if (service.remove(id)) fail("second cancel of " + id);
+            } else if (pick < addPercent + 30) {
+                // Mostly the oldest order; sometimes a driver takes the next few a second apart
+                int batch = random.nextInt(5) == 0 ? 2 + random.nextInt(3) : 1;
+                now += random.nextInt(240_000);
+                for (int b = 0; b < batch && !queue.isEmpty(); b++) {
+                    long id = random.nextInt(4) == 0 ? randomQueued(queue, random) : queue.keySet().iterator().next();
+                    queue.remove(id);
+                    service.recordDelivery(id, now, queue.size());
+                    lastDeliveryMillis = queue.isEmpty() ? 0 : now;
+                    deliveries++;
+                    if (b > 0) batched++;
+                    now += 1_000;
+                }
+                minRate = Math.min(minRate, service.getKitchenRate());
+                maxRate = Math.max(maxRate, service.getKitchenRate());
+            } else {
+                long id = randomQueued(queue, random);
+                now += random.nextInt(10_000);
+                OrderEta eta = service.estimate(id, now);
+                long expected = expectedReadyAt(queue, id, now, lastDeliveryMillis, service.getKitchenRate());
+                if (eta == null || eta.getReadyAtMillis() != expected
+                        || eta.getDeliveryAtMillis() != expected + (long) (DELIVERY_MINUTES * 60_000)) {
+                    fail("estimate of " + id + ": " + eta + ", expected ready at " + expected);
+                }
+                estimates++;
+            }
+            if (service.size() != queue.size()) fail("size " + service.size() + ", expected " + queue.size());
+            maxQueued = Math.max(maxQueued, queue.size());
+        }
+        if (minRate < COOKS / 4 || maxRate > COOKS * 4) fail("kitchen rate left its bounds: " + minRate + " to " + maxRate);
+
+        System.out.printf("%d operations: %d estimates matched, %d deliveries (%d in batches), up to %d orders queued%n",
+                operations, estimates, deliveries, batched, maxQueued);
+        System.out.printf("kitchen rate stayed between %.2f and %.2f prep minutes per minute (initial %.1f)%n",
+                minRate, maxRate, COOKS);
+        checkBatchedPickup();
+    }
+
+    // Two-pizza orders leave every three minutes, which is two cooks' pace, then two go a second apart
+    private static void checkBatchedPickup() {
+        OrderEtaService service = new OrderEtaService(COOKS, DELIVERY_MINUTES);
+        ArrayList<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Order order = new Order("Customer", 12345678, "1 High Street");
+            order.addFoodItem(new Pizza(), false); // Three prep minutes each, and a free third
+            order.addFoodItem(new Pizza(), false);
+            orders.add(order);
+            service.add(order);
+        }
+        double minutesPerOrder = prepMillis(orders.get(0)) / 60_000.0;
+        long interval = (long) (minutesPerOrder / COOKS * 60_000);
+        long now = 1_000_000;
+        for (int i = 0; i < 20; i++) {
+            now += interval;
+            service.recordDelivery(orders.get(i).getOrderId(), now, orders.size() - i - 1);
+        }
+        double steady = service.getKitchenRate();
+        service.recordDelivery(orders.get(20).getOrderId(), now + 1_000, orders.size() - 21);
+        double afterBatch = service.getKitchenRate();
+
+        System.out.printf("batched pickup: rate %.2f before, %.2f after two deliveries a second apart%n",
+                steady, afterBatch);
+        if (Math.abs(steady - COOKS) > 0.01 || afterBatch > COOKS * 1.1) {
+            fail("batched pickup moved the rate from " + steady + " to " + afterBatch);
+        }
+    }
+
+    // Walks the queue up to the order, as the service's prefix sum avoids doing
+    private static long expectedReadyAt(Map<Long, Long> queue, long orderId, long now, long lastDeliveryMillis,
+                                        double kitchenRate) {
+        long work = 0;
+        for (Map.Entry<Long, Long> entry : queue.entrySet()) {
+            work += entry.getValue();
+            if (entry.getKey() == orderId) break;
+        }
+        double workAhead = work;
+        if (lastDeliveryMillis != 0) {
+            workAhead = Math.max(0, workAhead - kitchenRate * (now - lastDeliveryMillis));
+        }
+        return now + (long) (workAhead / kitchenRate);
+    }
+
+    private static long prepMillis(Order order) {
+        double minutes = 0;
+        for (FoodItem item : order.getFoodItems()) {
+            minutes += FoodItemRegistry.getPrepMinutes(item.getTypeId());
+        }
+        return (long) (minutes * 60_000);
+    }
+
+    private static long randomQueued(LinkedHashMap<Long, Long> queue, Random random) {
+        int skip = random.nextInt(queue.size());
+        for (long id : queue.keySet()) {
+            if (skip-- == 0) return id;
+        }
+        throw new IllegalStateException("Queue is empty.");
+    }
+
+    private static Order newOrder(Random random) {
+        Order order = new Order("Customer", 12345678, "1 High Street");
+        int items = 1 + random.nextInt(4);
+        for (int i = 0; i < items; i++) {
+            if (random.nextBoolean()) order.addFoodItem(new Pizza(), false);
+            else order.addFoodItem(new Pasta(), false);
+        }
+        return order;
+    }
+
+    private static void fail(String message) {
+        System.out.println("MISMATCH: " + message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,141 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * One slot of the OrderEventBus ring. Slots are created once with the bus and
+ * overwritten in place for every event, so handlers must copy anything they want
+ * to keep; a slot's contents are only valid during the handler call that received it.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderEvent {
+
+    public static final int ORDER_CREATED = 1;
+    public static final int ORDER_DELIVERED = 2;
+    public static final int ORDER_CANCELLED = 3;
+
+    private int type;
+    private long orderId;
+    private long createdAtMillis;
+    private int contactNumber;
+    private long totalCents;
+    private FoodType mealType;
+    private int itemCount;
+    private final long[] centsByFoodType = new long[FoodType.values().length]; // Reused, like the slot
+
+    /**
+     * Copies the fields of an order into this slot.
+     *
+     * @param type  the event type
+     * @param order the order the event is about
+     */
+    void set(int type, Order order) {
+        this.type = type;
+        this.orderId = order.getOrderId();
+        this.createdAtMillis = order.getCreatedAtMillis();
+        this.contactNumber = order.getCustomerContactNumber();
+        this.totalCents = Math.round(order.getTotalCost() * 100);
+        this.mealType = order.getMealType();
+        this.itemCount = order.getFoodItems().size();
+
+        // Split the total by each item's own food type; indexed loop so nothing is allocated
+        Arrays.fill(centsByFoodType, 0);
+        ArrayList<FoodItem> items = order.getFoodItems();
+        for (int i = 0; i < items.size(); i++) {
+            FoodItem item = items.get(i);
+            if (item.getFoodType() != null) {
+                centsByFoodType[item.getFoodType().ordinal()] += Math.round(item.getPrice() * 100);
+            }
+        }
+    }
+
+    /**
+     * Copies another slot into this one, for handlers that read a private copy.
+     *
+     * @param other the slot to copy
+     */
+    void copyFrom(OrderEvent other) {
+        this.type = other.type;
+        this.orderId = other.orderId;
+        this.createdAtMillis = other.createdAtMillis;
+        this.contactNumber = other.contactNumber;
+        this.totalCents = other.totalCents;
+        this.mealType = other.mealType;
+        this.itemCount = other.itemCount;
+        System.arraycopy(other.centsByFoodType, 0, centsByFoodType, 0, centsByFoodType.length);
+    }
+
+    /**
+     * Returns the event type: ORDER_CREATED, ORDER_DELIVERED or ORDER_CANCELLED.
+     *
+     * @return the event type
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * Returns the id of the order.
+     *
+     * @return the order id
+     */
+    public long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Returns when the order was taken, whatever the event is.
+     *
+     * @return the order's creation time in milliseconds since the epoch
+     */
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    /**
+     * Returns the customer's contact number.
+     *
+     * @return the contact number
+     */
+    public int getContactNumber() {
+        return contactNumber;
+    }
+
+    /**
+     * Returns the order total.
+     *
+     * @return the total in cents
+     */
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    /**
+     * Returns the part of the order total spent on items of one food type.
+     *
+     * @param foodType the food type
+     * @return the amount in cents
+     */
+    public long getCents(FoodType foodType) {
+        return centsByFoodType[foodType.ordinal()];
+    }
+
+    /**
+     * Returns the overall meal type of the order.
+     *
+     * @return the meal type
+     */
+    public FoodType getMealType() {
+        return mealType;
+    }
+
+    /**
+     * Returns the number of items in the order, including free items.
+     *
+     * @return the item count
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+}
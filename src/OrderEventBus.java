@@ -0,0 +1,258 @@
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process bus that hands order events to any number of independent handlers, in the
+ * style of the LMAX Disruptor. Events live in a ring of preallocated OrderEvent slots:
+ * - publishers claim the next sequence number with a compare-and-set, fill that slot and
+ *   mark it available for that lap of the ring
+ * - each handler has its own thread and its own sequence, reads every available slot
+ *   in order and then advances its sequence past the whole batch
+ * Each handler has an OverflowPolicy for when it falls a full ring behind. Publishers wait
+ * for a blocking handler, wait up to the timeout for a timed one and never wait for a
+ * dropping one, so only the handler that is too slow misses events, never the others.
+ * A handler that can be overtaken reads each event into a private copy and checks that
+ * the slot was not rewritten while it was copying; the events it misses are counted,
+ * logged on stderr and reported by getDropped(). Publishing never allocates.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderEventBus {
+
+    private static final int WRITING = -2; // Lap marker while a publisher rewrites a slot
+    private static final long WARNING_INTERVAL_NANOS = 10_000_000_000L; // Between missed-event warnings
+
+    private final OrderEvent[] slots;
+    private final int mask;
+    private final int lapShift;
+    private final AtomicIntegerArray availableLap; // Ring lap each slot was last published for
+    private final WaitStrategy waitStrategy;
+
+    private final AtomicLong claimed = new AtomicLong(-1);      // Highest sequence handed to a publisher
+    private final AtomicLong minHandlerSequence = new AtomicLong(-1); // Cached lower bound of waited-for sequences
+
+    private volatile Handler[] handlers = new Handler[0];
+
+    /**
+     * Constructs a bus.
+     *
+     * @param capacity     the number of slots, rounded up to a power of two
+     * @param waitStrategy how idle handler threads and held-back publishers wait
+     */
+    public OrderEventBus(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+
+        this.slots = new OrderEvent[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new OrderEvent();
+        }
+        this.mask = size - 1;
+        this.lapShift = Integer.numberOfTrailingZeros(size);
+        this.availableLap = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            availableLap.set(i, -1);
+        }
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Starts a handler on its own daemon thread. It receives events published from now on.
+     *
+     * @param name    the name of the handler's thread, also used in missed-event warnings
+     * @param handler the handler
+     * @param policy  what publishers do when the handler is a full ring behind
+     */
+    public synchronized void addHandler(String name, OrderEventHandler handler, OverflowPolicy policy) {
+        Handler added = new Handler(name, handler, policy, claimed.get());
+        Handler[] updated = Arrays.copyOf(handlers, handlers.length + 1);
+        updated[handlers.length] = added;
+        handlers = updated;
+
+        Thread thread = new Thread(added, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Publishes an event about an order. If a handler is a full ring behind, waits for it as
+     * its policy says; handlers that are not waited for miss the oldest event instead.
+     *
+     * @param type  OrderEvent.ORDER_CREATED, ORDER_DELIVERED or ORDER_CANCELLED
+     * @param order the order the event is about
+     */
+    public void publish(int type, Order order) {
+        long sequence;
+        long waitStart = 0;
+        int attempt = 0;
+        while (true) {
+            long current = claimed.get();
+            sequence = current + 1;
+            long wrapPoint = sequence - slots.length;
+            if (wrapPoint > minHandlerSequence.get() && wrapPoint > refreshMinSequence()) {
+                if (attempt == 0) waitStart = System.nanoTime();
+                if (isHeldBack(wrapPoint, System.nanoTime() - waitStart)) {
+                    waitStrategy.idle(attempt++);
+                    continue;
+                }
+            }
+            if (claimed.compareAndSet(current, sequence)) break;
+        }
+
+        int index = (int) sequence & mask;
+        if (sequence >= slots.length) {
+            // With nobody to wait for, publishers can lap each other; let the previous lap finish
+            int previousLap = (int) ((sequence - slots.length) >>> lapShift);
+            for (int spins = 0; availableLap.get(index) != previousLap; spins++) {
+                waitStrategy.idle(spins);
+            }
+        }
+        availableLap.setOpaque(index, WRITING); // Tells a handler copying the old event that it changed
+        VarHandle.storeStoreFence();
+        slots[index].set(type, order);
+        availableLap.lazySet(index, (int) (sequence >>> lapShift));
+    }
+
+    /**
+     * Returns the number of events handlers have missed because they fell a full ring behind
+     * and their policy let publishers overwrite what they had not read.
+     *
+     * @return the missed event count, over all handlers
+     */
+    public long getDropped() {
+        long total = 0;
+        for (Handler handler : handlers) {
+            total += handler.dropped.get();
+        }
+        return total;
+    }
+
+    /**
+     * Returns how many events still in the ring the slowest handler has yet to process.
+     *
+     * @return the backlog of the slowest handler, at most the ring size
+     */
+    public long getBacklog() {
+        long newest = claimed.get();
+        long min = newest;
+        for (Handler handler : handlers) {
+            min = Math.min(min, handler.sequence.get());
+        }
+        return Math.min(newest - min, slots.length);
+    }
+
+    /**
+     * Stops every handler thread after its current batch.
+     */
+    public void close() {
+        for (Handler handler : handlers) {
+            handler.running = false;
+        }
+    }
+
+    // Recomputes the slowest sequence publishers may wait for; with no such handlers nothing holds slots back
+    private long refreshMinSequence() {
+        long min = claimed.get();
+        for (Handler handler : handlers) {
+            if (handler.policy.holdsBack(0)) min = Math.min(min, handler.sequence.get());
+        }
+        minHandlerSequence.set(min);
+        return min;
+    }
+
+    // True if a handler that has not passed the wrap point may still hold the publisher back
+    private boolean isHeldBack(long wrapPoint, long waitedNanos) {
+        for (Handler handler : handlers) {
+            if (handler.sequence.get() < wrapPoint && handler.policy.holdsBack(waitedNanos)) return true;
+        }
+        return false;
+    }
+
+    private boolean isAvailable(long sequence) {
+        int index = (int) sequence & mask;
+        return availableLap.get(index) == (int) (sequence >>> lapShift);
+    }
+
+    /**
+     * A handler together with its position in the ring and the loop that feeds it.
+     */
+    private class Handler implements Runnable {
+
+        private final String name;
+        private final OrderEventHandler handler;
+        private final OverflowPolicy policy;
+        private final OrderEvent copy; // Private copy of each event, only for handlers that can be overtaken
+        private final AtomicLong sequence; // Last event this handler has finished with
+        private final AtomicLong dropped = new AtomicLong();
+        private long lastWarningNanos;
+        private volatile boolean running = true;
+
+        Handler(String name, OrderEventHandler handler, OverflowPolicy policy, long start) {
+            this.name = name;
+            this.handler = handler;
+            this.policy = policy;
+            this.copy = policy.isLossy() ? new OrderEvent() : null;
+            this.sequence = new AtomicLong(start);
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (running) {
+                long next = sequence.get() + 1;
+                if (copy != null && claimed.get() - next >= slots.length) {
+                    skipOverwritten(next);
+                    continue;
+                }
+                if (!isAvailable(next)) {
+                    waitStrategy.idle(idle++);
+                    continue;
+                }
+                idle = 0;
+
+                // Publishers may finish out of order; stop the batch at the first gap
+                long last = next;
+                while (isAvailable(last + 1) && last + 1 - next < slots.length) {
+                    last++;
+                }
+                long done = next - 1;
+                for (long s = next; s <= last; s++) {
+                    OrderEvent event = slots[(int) s & mask];
+                    if (copy != null) {
+                        copy.copyFrom(event);
+                        VarHandle.loadLoadFence();
+                        if (!isAvailable(s)) break; // Overwritten while copying; skipped on the next pass
+                        event = copy;
+                    }
+                    try {
+                        handler.onEvent(event, s, s == last);
+                    } catch (RuntimeException e) {
+                        System.err.println("Order event handler " + name + " failed: " + e);
+                    }
+                    done = s;
+                }
+                sequence.lazySet(done);
+            }
+        }
+
+        // Jumps to the oldest event still in the ring and counts the ones passed over
+        private void skipOverwritten(long next) {
+            long resume = claimed.get() - slots.length + 1;
+            long total = dropped.addAndGet(resume - next);
+            sequence.set(resume - 1);
+
+            long now = System.nanoTime();
+            if (lastWarningNanos == 0 || now - lastWarningNanos >= WARNING_INTERVAL_NANOS) {
+                lastWarningNanos = now;
+                System.err.println("Order event handler " + name + " fell a full ring behind and has missed "
+                        + total + " events so far (policy: " + policy + ").");
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * Receives order events from an OrderEventBus on the handler's own thread.
+ * Events arrive in publication order, in batches of whatever was published since the
+ * handler last caught up; endOfBatch marks the last event currently available, which is
+ * the place to flush buffered work such as a screen refresh or an export write.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public interface OrderEventHandler {
+
+    /**
+     * Handles one event.
+     *
+     * @param event      the event; only valid until this method returns
+     * @param sequence   the event's position in the bus, increasing by one per event
+     * @param endOfBatch true if no further events are available yet
+     */
+    void onEvent(OrderEvent event, long sequence, boolean endOfBatch);
+}
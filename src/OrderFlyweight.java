@@ -0,0 +1,273 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Reusable read-only view over an order encoded by OrderCodec.
+ * Fields are read straight from the buffer, so summaries, filters and routing can look at
+ * an encoded order without building an Order or any FoodItems. Wrapping scans the header
+ * once; the buffer's position is never changed.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderFlyweight {
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int bodyEnd;
+
+    private int contactNumber;
+    private int mealType;
+    private int totalCents;
+    private int itemCount;
+    private int nameOffset;
+    private int addressOffset;
+    private int itemsOffset;
+    private long orderId;
+    private long createdAtMillis;
+
+    // Cursor over the items
+    private int nextItemOffset;
+    private int itemsRead;
+    private int itemKind;
+    private int itemFlags;
+    private int itemToppings;
+    private int itemPriceCents;
+
+    /**
+     * Points this view at an encoded order.
+     *
+     * @param buffer the buffer holding the order
+     * @param offset the index of the order's first byte
+     * @return this view, for chaining
+     */
+    public OrderFlyweight wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.bodyEnd = offset + 5 + buffer.getInt(offset + 1);
+
+        int i = offset + 5;
+        contactNumber = OrderCodec.getVarint(buffer, i, false);
+        i += OrderCodec.varintLength(contactNumber);
+        mealType = OrderCodec.getVarint(buffer, i, false);
+        i += OrderCodec.varintLength(mealType);
+        totalCents = OrderCodec.getVarint(buffer, i, false);
+        i += OrderCodec.varintLength(totalCents);
+        itemCount = OrderCodec.getVarint(buffer, i, false);
+        i += OrderCodec.varintLength(itemCount);
+
+        nameOffset = i;
+        i = skipString(i);
+        addressOffset = i;
+        itemsOffset = skipString(i);
+
+        // The order id trails the items (version 2 onwards), then the creation time (version 3 onwards)
+        orderId = 0;
+        createdAtMillis = 0;
+        if (version() >= 2) {
+            i = itemsOffset;
+            for (int n = 0; n < itemCount; n++) {
+                int itemLength = OrderCodec.getVarint(buffer, i, false);
+                i += OrderCodec.varintLength(itemLength) + itemLength;
+            }
+            orderId = OrderCodec.getVarlong(buffer, i);
+            if (version() >= 3) createdAtMillis = OrderCodec.getVarlong(buffer, i + OrderCodec.varlongLength(orderId));
+        }
+
+        resetItems();
+        return this;
+    }
+
+    /**
+     * Returns the format version of the wrapped order.
+     *
+     * @return the version byte
+     */
+    public int version() {
+        return buffer.get(offset);
+    }
+
+    /**
+     * Returns the number of bytes the wrapped order occupies, header included.
+     *
+     * @return the encoded length
+     */
+    public int encodedLength() {
+        return bodyEnd - offset;
+    }
+
+    /**
+     * Returns the order id.
+     *
+     * @return the order id, or 0 for version 1 orders, which carry none
+     */
+    public long orderId() {
+        return orderId;
+    }
+
+    /**
+     * Returns when the order was taken.
+     *
+     * @return the creation time in epoch milliseconds, or 0 for orders before version 3
+     */
+    public long createdAtMillis() {
+        return createdAtMillis;
+    }
+
+    /**
+     * Returns the customer's contact number.
+     *
+     * @return the contact number
+     */
+    public int contactNumber() {
+        return contactNumber;
+    }
+
+    /**
+     * Returns the overall meal type of the order.
+     *
+     * @return the meal type
+     */
+    public FoodType mealType() {
+        return OrderCodec.FOOD_TYPES[mealType];
+    }
+
+    /**
+     * Returns the total cost of the order in cents.
+     *
+     * @return the total cost in cents
+     */
+    public int totalCents() {
+        return totalCents;
+    }
+
+    /**
+     * Returns the number of food items, free items included.
+     *
+     * @return the item count
+     */
+    public int itemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Appends the customer's name to the given builder.
+     *
+     * @param out the builder to append to
+     * @return the same builder
+     */
+    public StringBuilder appendCustomerName(StringBuilder out) {
+        return appendString(nameOffset, out);
+    }
+
+    /**
+     * Appends the delivery address to the given builder.
+     *
+     * @param out the builder to append to
+     * @return the same builder
+     */
+    public StringBuilder appendDeliveryAddress(StringBuilder out) {
+        return appendString(addressOffset, out);
+    }
+
+    /**
+     * Moves the item cursor back before the first item.
+     */
+    public void resetItems() {
+        nextItemOffset = itemsOffset;
+        itemsRead = 0;
+    }
+
+    /**
+     * Advances the item cursor to the next item.
+     *
+     * @return false if there are no more items
+     */
+    public boolean nextItem() {
+        if (itemsRead == itemCount) return false;
+
+        int itemLength = OrderCodec.getVarint(buffer, nextItemOffset, false);
+        int i = nextItemOffset + OrderCodec.varintLength(itemLength);
+        nextItemOffset = i + itemLength;
+        itemsRead++;
+
+        itemKind = OrderCodec.getVarint(buffer, i, false);
+        i += OrderCodec.varintLength(itemKind);
+        itemFlags = OrderCodec.getVarint(buffer, i, false);
+        i += OrderCodec.varintLength(itemFlags);
+        itemToppings = OrderCodec.getVarint(buffer, i, false);
+        i += OrderCodec.varintLength(itemToppings);
+        itemPriceCents = OrderCodec.getVarint(buffer, i, false);
+        return true;
+    }
+
+    /**
+     * Returns the current item's kind, its FoodItemRegistry type id.
+     *
+     * @return the item kind
+     */
+    public int itemKind() {
+        return itemKind;
+    }
+
+    /**
+     * Checks whether the current item is a promotional free item.
+     *
+     * @return true if the item is free
+     */
+    public boolean itemFree() {
+        return (itemFlags & OrderCodec.FLAG_FREE) != 0;
+    }
+
+    /**
+     * Returns the current item's options as its getOptionBits returned them: a PizzaToppings
+     * ordinal bitset for pizza, or a PastaTopping ordinal + 1 for pasta (0 for none).
+     *
+     * @return the encoded toppings
+     */
+    public int itemToppings() {
+        return itemToppings;
+    }
+
+    /**
+     * Returns the current item's price in cents.
+     *
+     * @return the price in cents
+     */
+    public int itemPriceCents() {
+        return itemPriceCents;
+    }
+
+    /**
+     * Builds a full Order from the wrapped bytes.
+     *
+     * @return the decoded order
+     */
+    public Order toOrder() {
+        return OrderCodec.decode(buffer.duplicate().position(offset));
+    }
+
+    private int skipString(int index) {
+        int length = OrderCodec.getVarint(buffer, index, false);
+        return index + OrderCodec.varintLength(length) + length;
+    }
+
+    private StringBuilder appendString(int index, StringBuilder out) {
+        int length = OrderCodec.getVarint(buffer, index, false);
+        int i = index + OrderCodec.varintLength(length);
+        int end = i + length;
+
+        // Append UTF-8 straight from the buffer; names and addresses are almost always ASCII
+        while (i < end) {
+            int b = buffer.get(i) & 0xFF;
+            if (b < 0x80) {
+                out.append((char) b);
+                i++;
+            } else {
+                int sequenceLength = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+                out.append(OrderCodec.decodeUtf8(buffer, i, sequenceLength));
+                i += sequenceLength;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,23 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering a change to an order's total cost and promotions.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+@Name("takeaway.OrderPricing")
+@Label("Order Pricing")
+@Category({"Takeaway", "Order Lifecycle"})
+@Description("Total cost and promotions updated for an order")
+public class OrderPricingEvent extends jdk.jfr.Event {
+
+    @Label("Order ID")
+    long orderId;
+
+    @Label("Item Count")
+    int itemCount;
+}
@@ -0,0 +1,188 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Heap-based OrderBook: a FIFO queue of pending orders that also supports cancelling any order by id.
+ * Cancelling removes the order from an id index and leaves a tombstone in the FIFO,
+ * which is skipped when it reaches the head. Once tombstones outnumber live orders the
+ * FIFO is compacted, so add, poll and cancel are all O(1) amortized.
+ * Each add queues a new entry and the index points at the current one, so an order that is
+ * cancelled and added again joins the back of the queue once; its tombstone stays dead.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderQueue implements OrderBook {
+
+    private final ArrayDeque<Entry> fifo = new ArrayDeque<>();
+    private final HashMap<Long, Entry> live = new HashMap<>();
+    private int tombstones;
+
+    /**
+     * Adds an order to the back of the queue.
+     *
+     * @param order the order to add
+     * @throws IllegalArgumentException if an order with the same id is already queued
+     */
+    @Override
+    public void add(Order order) {
+        Entry entry = new Entry(order);
+        if (live.putIfAbsent(order.getOrderId(), entry) != null) {
+            throw new IllegalArgumentException("Order " + order.getOrderId() + " is already queued.");
+        }
+        fifo.add(entry);
+    }
+
+    /**
+     * Removes and returns the oldest pending order.
+     *
+     * @return the oldest order, or null if the queue is empty
+     */
+    @Override
+    public Order poll() {
+        skipTombstones();
+        Entry head = fifo.poll();
+        if (head == null) return null;
+        live.remove(head.order.getOrderId());
+        return head.order;
+    }
+
+    /**
+     * Returns the oldest pending order without removing it.
+     *
+     * @return the oldest order, or null if the queue is empty
+     */
+    @Override
+    public Order peek() {
+        skipTombstones();
+        Entry head = fifo.peek();
+        return head == null ? null : head.order;
+    }
+
+    /**
+     * Cancels a pending order wherever it is in the queue.
+     *
+     * @param orderId the id of the order to cancel
+     * @return the cancelled order, or null if no pending order has that id
+     */
+    @Override
+    public Order cancel(long orderId) {
+        Entry cancelled = live.remove(orderId);
+        if (cancelled == null) return null;
+
+        tombstones++;
+        if (tombstones > live.size()) compact();
+        return cancelled.order;
+    }
+
+    /**
+     * Looks up a pending order by id.
+     *
+     * @param orderId the order id
+     * @return the order, or null if no pending order has that id
+     */
+    @Override
+    public Order get(long orderId) {
+        Entry entry = live.get(orderId);
+        return entry == null ? null : entry.order;
+    }
+
+    /**
+     * Returns the number of pending orders.
+     *
+     * @return the number of orders
+     */
+    @Override
+    public int size() {
+        return live.size();
+    }
+
+    /**
+     * Checks whether there are no pending orders.
+     *
+     * @return true if the queue is empty
+     */
+    @Override
+    public boolean isEmpty() {
+        return live.isEmpty();
+    }
+
+    /**
+     * Returns the pending orders, oldest first.
+     *
+     * @return a new list of the orders
+     */
+    public ArrayList<Order> toList() {
+        ArrayList<Order> list = new ArrayList<>(live.size());
+        for (Order order : this) {
+            list.add(order);
+        }
+        return list;
+    }
+
+    /**
+     * Iterates over the pending orders, oldest first, skipping cancelled ones.
+     *
+     * @return an iterator over the orders
+     */
+    @Override
+    public Iterator<Order> iterator() {
+        Iterator<Entry> all = fifo.iterator();
+        return new Iterator<Order>() {
+            private Order next = advance();
+
+            private Order advance() {
+                while (all.hasNext()) {
+                    Entry candidate = all.next();
+                    if (isLive(candidate)) return candidate.order;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Order next() {
+                if (next == null) throw new NoSuchElementException();
+                Order current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    // Live only while the index still points at this entry, not a later add of the same order
+    private boolean isLive(Entry entry) {
+        return live.get(entry.order.getOrderId()) == entry;
+    }
+
+    private void skipTombstones() {
+        while (!fifo.isEmpty() && !isLive(fifo.peek())) {
+            fifo.poll();
+            tombstones--;
+        }
+    }
+
+    // Drops every tombstone; runs only after as many cancels as there are live orders
+    private void compact() {
+        fifo.removeIf(entry -> !isLive(entry));
+        tombstones = 0;
+    }
+
+    /**
+     * One add of an order to the queue.
+     */
+    private static final class Entry {
+        private final Order order;
+
+        private Entry(Order order) {
+            this.order = order;
+        }
+    }
+}
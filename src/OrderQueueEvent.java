@@ -0,0 +1,28 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event emitted when an order leaves the pending queue, recording how long it waited.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+@Name("takeaway.OrderQueue")
+@Label("Order Queue Wait")
+@Category({"Takeaway", "Order Lifecycle"})
+@Description("Time an order spent in the pending queue")
+public class OrderQueueEvent extends jdk.jfr.Event {
+
+    @Label("Order ID")
+    long orderId;
+
+    @Label("Queue Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueTime;
+
+    @Label("Cancelled")
+    boolean cancelled;
+}
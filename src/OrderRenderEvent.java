@@ -0,0 +1,23 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering the rendering of an order as text.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+@Name("takeaway.OrderRender")
+@Label("Order Render")
+@Category({"Takeaway", "Order Lifecycle"})
+@Description("Order formatted for display")
+public class OrderRenderEvent extends jdk.jfr.Event {
+
+    @Label("Order ID")
+    long orderId;
+
+    @Label("Length")
+    int length;
+}
@@ -0,0 +1,142 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Backup side of order-queue replication.
+ * Accepts a connection from the primary's OrderReplicator and applies each batch of
+ * create, deliver and cancel events to its own FIFO queue, so the queue stays identical to the
+ * primary's. When the primary's connection drops, the pending orders can be taken over.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderReplica implements AutoCloseable {
+
+    private final ServerSocket server;
+    private final OrderQueue orders = new OrderQueue();
+    private long appliedSequence;
+
+    /**
+     * Opens the replication port. Call {@link #run()} to start receiving events.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public OrderReplica(int port) throws IOException {
+        this.server = new ServerSocket(port);
+    }
+
+    /**
+     * Returns the port the replica is listening on.
+     *
+     * @return the replication port
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accepts the primary and applies its events until the connection is lost.
+     * Returning from this method means the primary has failed or closed replication.
+     *
+     * @throws IOException if no primary connection could be accepted
+     */
+    public void run() throws IOException {
+        try (Socket primary = server.accept()) {
+            primary.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(primary.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(primary.getOutputStream()));
+
+            while (true) {
+                int eventCount = in.readInt();
+                long lastSequence = 0;
+                for (int i = 0; i < eventCount; i++) {
+                    lastSequence = in.readLong();
+                    byte type = in.readByte();
+                    if (type == OrderReplicator.ORDER_CREATED) {
+                        byte[] payload = new byte[in.readInt()];
+                        in.readFully(payload);
+                        applyCreate(lastSequence, decode(payload));
+                    } else if (type == OrderReplicator.ORDER_DELIVERED) {
+                        applyDeliver(lastSequence);
+                    } else if (type == OrderReplicator.ORDER_CANCELLED) {
+                        applyCancel(lastSequence, in.readLong());
+                    } else {
+                        throw new IOException("Unknown replication event type: " + type);
+                    }
+                }
+
+                // One acknowledgement per batch
+                out.writeLong(lastSequence);
+                out.flush();
+            }
+        } catch (EOFException e) {
+            // Primary closed the connection
+        } catch (IOException e) {
+            if (server.isClosed()) return;
+            System.out.println("Lost connection to primary: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a copy of the replicated pending orders in FIFO order.
+     * Used to take over from a failed primary.
+     *
+     * @return the pending orders
+     */
+    public synchronized ArrayList<Order> getPendingOrders() {
+        return orders.toList();
+    }
+
+    /**
+     * Returns the sequence number of the last event applied.
+     *
+     * @return the last applied sequence number
+     */
+    public synchronized long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Stops listening for the primary.
+     */
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+
+    private static Order decode(byte[] payload) throws IOException {
+        try {
+            return OrderCodec.decode(ByteBuffer.wrap(payload));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt order in replication stream", e);
+        }
+    }
+
+    private synchronized void applyCreate(long sequence, Order order) {
+        orders.add(order);
+        appliedSequence = sequence;
+    }
+
+    private synchronized void applyDeliver(long sequence) {
+        orders.poll();
+        appliedSequence = sequence;
+    }
+
+    private synchronized void applyCancel(long sequence, long orderId) {
+        orders.cancel(orderId);
+        appliedSequence = sequence;
+    }
+}
@@ -0,0 +1,245 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Primary side of order-queue replication.
+ * Streams every order create, deliver and cancel event to one OrderReplica over TCP. Events are
+ * queued by the caller and written by a background thread in batches, one flush per batch,
+ * and the backup acknowledges the last sequence number it applied after each batch.
+ * In synchronous mode callers wait for that acknowledgement; in asynchronous mode they don't.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderReplicator implements AutoCloseable {
+
+    // Event types written to the stream
+    static final byte ORDER_CREATED = 1;
+    static final byte ORDER_DELIVERED = 2;
+    static final byte ORDER_CANCELLED = 3;
+
+    private static final int MAX_BATCH = 256;
+
+    private final Socket socket;
+    private final boolean synchronous;
+    private final LinkedBlockingQueue<Event> pending = new LinkedBlockingQueue<>();
+    private final Object ackLock = new Object();
+
+    private long nextSequence = 1;
+    private long sentSequence;
+    private long ackedSequence;
+    private volatile boolean failed;
+
+    /**
+     * Connects to a backup and starts streaming events to it.
+     *
+     * @param host        the backup's host name
+     * @param port        the backup's replication port
+     * @param synchronous whether callers wait for the backup to acknowledge each event
+     * @throws IOException if the backup cannot be reached
+     */
+    public OrderReplicator(String host, int port, boolean synchronous) throws IOException {
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.synchronous = synchronous;
+
+        Thread sender = new Thread(this::sendLoop, "order-replicator-sender");
+        sender.setDaemon(true);
+        sender.start();
+
+        Thread ackReader = new Thread(this::ackLoop, "order-replicator-acks");
+        ackReader.setDaemon(true);
+        ackReader.start();
+    }
+
+    /**
+     * Queues a create event for a newly accepted order.
+     * Must be called in the same order the primary queues orders.
+     *
+     * @param order the order added to the queue
+     * @return the event's sequence number, or -1 if replication has failed
+     */
+    public synchronized long replicateCreate(Order order) {
+        if (failed) return -1;
+        long sequence = nextSequence++;
+        byte[] payload = new byte[OrderCodec.encodedLength(order)];
+        OrderCodec.encode(order, ByteBuffer.wrap(payload));
+        pending.add(new Event(sequence, ORDER_CREATED, payload, 0));
+        return sequence;
+    }
+
+    /**
+     * Queues a deliver event for the order at the head of the queue.
+     *
+     * @return the event's sequence number, or -1 if replication has failed
+     */
+    public synchronized long replicateDeliver() {
+        if (failed) return -1;
+        long sequence = nextSequence++;
+        pending.add(new Event(sequence, ORDER_DELIVERED, null, 0));
+        return sequence;
+    }
+
+    /**
+     * Queues a cancel event for a pending order.
+     *
+     * @param orderId the id of the cancelled order
+     * @return the event's sequence number, or -1 if replication has failed
+     */
+    public synchronized long replicateCancel(long orderId) {
+        if (failed) return -1;
+        long sequence = nextSequence++;
+        pending.add(new Event(sequence, ORDER_CANCELLED, null, orderId));
+        return sequence;
+    }
+
+    /**
+     * Waits until the backup has applied the given event, if running in synchronous mode.
+     *
+     * @param sequence      the sequence number returned when the event was queued
+     * @param timeoutMillis the longest time to wait
+     * @return true if the event is known to be applied, or the replicator is asynchronous
+     */
+    public boolean awaitAck(long sequence, long timeoutMillis) {
+        if (!synchronous) return true;
+        if (sequence < 0) return false;
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (ackLock) {
+            while (ackedSequence < sequence && !failed) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                try {
+                    ackLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return ackedSequence >= sequence;
+        }
+    }
+
+    /**
+     * Returns how many events have been sent but not yet acknowledged by the backup.
+     *
+     * @return the replication lag in events
+     */
+    public long getLag() {
+        synchronized (ackLock) {
+            return sentSequence - ackedSequence;
+        }
+    }
+
+    /**
+     * Returns the last sequence number the backup has acknowledged.
+     *
+     * @return the acknowledged sequence number
+     */
+    public long getAckedSequence() {
+        synchronized (ackLock) {
+            return ackedSequence;
+        }
+    }
+
+    /**
+     * Checks whether the connection to the backup has been lost.
+     *
+     * @return true if replication has stopped
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    /**
+     * Closes the connection to the backup. The backup treats this as primary failure.
+     */
+    @Override
+    public void close() {
+        fail();
+    }
+
+    // Writes queued events in batches until the connection fails
+    private void sendLoop() {
+        ArrayList<Event> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (!failed) {
+                batch.add(pending.take());
+                pending.drainTo(batch, MAX_BATCH - 1);
+
+                out.writeInt(batch.size());
+                for (Event event : batch) {
+                    out.writeLong(event.sequence);
+                    out.writeByte(event.type);
+                    if (event.type == ORDER_CREATED) {
+                        out.writeInt(event.payload.length);
+                        out.write(event.payload);
+                    } else if (event.type == ORDER_CANCELLED) {
+                        out.writeLong(event.orderId);
+                    }
+                }
+                out.flush();
+
+                synchronized (ackLock) {
+                    sentSequence = batch.get(batch.size() - 1).sequence;
+                }
+                batch.clear();
+            }
+        } catch (IOException | InterruptedException e) {
+            fail();
+        }
+    }
+
+    // Reads acknowledgements and wakes any callers waiting on them
+    private void ackLoop() {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (!failed) {
+                long acked = in.readLong();
+                synchronized (ackLock) {
+                    ackedSequence = acked;
+                    ackLock.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    private void fail() {
+        failed = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Already closing
+        }
+        synchronized (ackLock) {
+            ackLock.notifyAll();
+        }
+    }
+
+    /**
+     * A replication event waiting to be sent.
+     */
+    private static final class Event {
+        private final long sequence;
+        private final byte type;
+        private final byte[] payload;
+        private final long orderId;
+
+        private Event(long sequence, byte type, byte[] payload, long orderId) {
+            this.sequence = sequence;
+            this.type = type;
+            this.payload = payload;
+            this.orderId = orderId;
+        }
+    }
+}
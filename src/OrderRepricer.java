@@ -0,0 +1,99 @@
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Quotes a batch of orders against the current menu in parallel, for example after a
+ * topping price changes, and reports how each order's total would move.
+ * The work is a fork-join task over ranges of the batch. A range keeps splitting in half
+ * only while it is large and the worker has few unclaimed tasks queued; once idle workers
+ * stop stealing, the remaining range is quoted in a plain loop. Orders are only read,
+ * so the batch must not be edited while it is being quoted.
+ * See OrderRepricerBenchmark for timings on a batch of 100k orders.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderRepricer {
+
+    private static final int MIN_SPLIT = 256; // Ranges smaller than this are never split
+    private static final int SURPLUS_LIMIT = 3; // Queued tasks a worker may hold before it stops splitting
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a repricer that runs on the common fork-join pool.
+     */
+    public OrderRepricer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a repricer that runs on the given pool.
+     *
+     * @param pool the pool to quote orders on
+     */
+    public OrderRepricer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Quotes every order in the batch.
+     *
+     * @param orders the orders to quote
+     * @return the quotes in batch order, with totals over the changed orders
+     */
+    public RepricingReport reprice(List<Order> orders) {
+        long start = System.nanoTime();
+        Order[] batch = orders.toArray(new Order[0]);
+        PriceQuote[] quotes = new PriceQuote[batch.length];
+
+        long[] totals = batch.length == 0 ? new long[3] : pool.invoke(new QuoteTask(batch, quotes, 0, batch.length));
+        return new RepricingReport(quotes, (int) totals[0], totals[1], (int) totals[2], System.nanoTime() - start);
+    }
+
+    /**
+     * Quotes one range of the batch; returns {changed orders, delta cents, promotion changes}.
+     * Tasks are never serialized; ForkJoinTask is Serializable only by inheritance.
+     */
+    @SuppressWarnings("serial")
+    private static class QuoteTask extends RecursiveTask<long[]> {
+
+        private final Order[] batch;
+        private final PriceQuote[] quotes;
+        private final int from;
+        private final int to;
+
+        QuoteTask(Order[] batch, PriceQuote[] quotes, int from, int to) {
+            this.batch = batch;
+            this.quotes = quotes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from >= MIN_SPLIT * 2 && getSurplusQueuedTaskCount() <= SURPLUS_LIMIT) {
+                int middle = (from + to) >>> 1;
+                QuoteTask right = new QuoteTask(batch, quotes, middle, to);
+                right.fork();
+                long[] left = new QuoteTask(batch, quotes, from, middle).compute();
+                long[] other = right.join();
+                left[0] += other[0];
+                left[1] += other[1];
+                left[2] += other[2];
+                return left;
+            }
+
+            long[] totals = new long[3];
+            for (int i = from; i < to; i++) {
+                PriceQuote quote = batch[i].quoteTotalCost();
+                quotes[i] = quote;
+                if (quote.isChanged()) totals[0]++;
+                totals[1] += quote.getDeltaCents();
+                if (quote.isPromotionsChanged()) totals[2]++;
+            }
+            return totals;
+        }
+    }
+}
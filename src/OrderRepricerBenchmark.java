@@ -0,0 +1,110 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times OrderRepricer on a large batch of pending orders after a topping price change.
+ * The batch is quoted with a plain loop on one thread, then with the repricer on fork-join
+ * pools of each given size. Every run must agree with the loop on the number of changed
+ * orders and the total delta. Times are the best of several rounds after a warm-up round.
+ * Usage: java OrderRepricerBenchmark [orders] [rounds] [parallelisms...]
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderRepricerBenchmark {
+
+    /**
+     * Runs the loop and each pool size and prints the time per batch and per order.
+     *
+     * @param args optional number of orders, number of timed rounds and pool sizes
+     * @throws Exception if a pool cannot be shut down
+     */
+    public static void main(String[] args) throws Exception {
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int[] parallelisms = new int[Math.max(1, args.length - 2)];
+        parallelisms[0] = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            parallelisms[i - 2] = Integer.parseInt(args[i]);
+        }
+
+        ArrayList<Order> orders = buildOrders(orderCount, new Random(42));
+        Pizza.setToppingPrice(PizzaToppings.CHEESE, 2.25); // The menu change being quoted
+
+        long[] expected = new long[2];
+        long loopNanos = timeLoop(orders, rounds, expected);
+
+        System.out.printf("%d orders, %d CPUs, best of %d rounds%n", orderCount,
+                Runtime.getRuntime().availableProcessors(), rounds);
+        System.out.printf("%d orders change, total %+.2f%n", expected[0], expected[1] / 100.0);
+        System.out.println("run            batch ms   ns/order  check");
+        System.out.printf("%-12s %10.2f %10.0f  ok%n", "loop", loopNanos / 1e6, (double) loopNanos / orderCount);
+
+        boolean allPassed = true;
+        for (int parallelism : parallelisms) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                OrderRepricer repricer = new OrderRepricer(pool);
+                long best = Long.MAX_VALUE;
+                boolean passed = true;
+                for (int round = 0; round <= rounds; round++) {
+                    RepricingReport report = repricer.reprice(orders);
+                    passed &= report.getChangedCount() == expected[0] && report.getTotalDeltaCents() == expected[1];
+                    if (round > 0) best = Math.min(best, report.getElapsedNanos()); // Round 0 warms up
+                }
+                System.out.printf("%-12s %10.2f %10.0f  %s%n", "pool of " + parallelism, best / 1e6,
+                        (double) best / orderCount, passed ? "ok" : "MISMATCH");
+                allPassed &= passed;
+            } finally {
+                pool.shutdown();
+            }
+        }
+        if (!allPassed) System.exit(1);
+    }
+
+    // Best time to quote the batch one order after another; fills in {changed, delta cents}
+    private static long timeLoop(List<Order> orders, int rounds, long[] totals) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round <= rounds; round++) {
+            long changed = 0;
+            long delta = 0;
+            long start = System.nanoTime();
+            for (Order order : orders) {
+                PriceQuote quote = order.quoteTotalCost();
+                if (quote.isChanged()) changed++;
+                delta += quote.getDeltaCents();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round > 0) best = Math.min(best, elapsed);
+            totals[0] = changed;
+            totals[1] = delta;
+        }
+        return best;
+    }
+
+    // One to four pizzas and pastas per order, priced at the current menu
+    private static ArrayList<Order> buildOrders(int count, Random random) {
+        PizzaToppings[] pizzaToppings = PizzaToppings.values();
+        PastaTopping[] pastaToppings = PastaTopping.values();
+        ArrayList<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Order order = new Order("Customer " + i, 10_000_000 + random.nextInt(90_000_000), i + " High Street");
+            int items = 1 + random.nextInt(4);
+            for (int j = 0; j < items; j++) {
+                if (random.nextBoolean()) {
+                    ArrayList<PizzaToppings> toppings = new ArrayList<>();
+                    for (PizzaToppings topping : pizzaToppings) {
+                        if (random.nextInt(3) == 0) toppings.add(topping);
+                    }
+                    order.addFoodItem(new Pizza(toppings), false);
+                } else {
+                    order.addFoodItem(new Pasta(pastaToppings[random.nextInt(pastaToppings.length)]), false);
+                }
+            }
+            orders.add(order);
+        }
+        return orders;
+    }
+}
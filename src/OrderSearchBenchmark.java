@@ -0,0 +1,128 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures OrderSearchIndex on a large synthetic set of orders: time to index them, heap
+ * held by the index, query latency for prefixes from one letter up to whole words, typos
+ * and multi-word queries, and the cost of removing half the orders again.
+ * Names and addresses are made of random syllables, with a share of "SurnameN" customers,
+ * so short prefixes such as "s" and "sur" match hundreds of thousands of distinct words.
+ * The whole query set is run as many times as there are repeats to warm up; each query is then
+ * timed over the repeats and the median and 99th percentile are printed.
+ * Usage: java OrderSearchBenchmark [orders] [repeats]
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderSearchBenchmark {
+
+    private static final String[] FIRST_NAMES = {"amir", "beth", "carlos", "dina", "ellis", "fatima", "george",
+        "hana", "ivan", "jade", "kofi", "lena", "milo", "nadia", "omar", "priya", "quinn", "rosa", "sam", "tariq"};
+    private static final String[] SYLLABLES = {"sa", "su", "sur", "ra", "ri", "mo", "ne", "ta", "ko", "li", "ve",
+        "dan", "mar", "son", "ton", "ley", "ford", "shaw", "sel", "bro"};
+    private static final String[] STREET_TYPES = {"street", "road", "avenue", "lane", "close", "square"};
+    private static final int LIMIT = 20;
+
+    /**
+     * Builds the index and prints the timings and heap size.
+     *
+     * @param args optional number of orders and number of timed repeats per query
+     */
+    public static void main(String[] args) {
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Random random = new Random(42);
+
+        long[] orderIds = new long[orderCount];
+        String name = null;
+        String street = null;
+        String longSurname = null; // For a query two typos away from any word
+        long heapBefore = usedHeap();
+        OrderSearchIndex index = new OrderSearchIndex(1000);
+        long start = System.nanoTime();
+        for (int i = 0; i < orderCount; i++) {
+            String customer = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                    + (random.nextInt(5) == 0 ? "Surname" + random.nextInt(200_000) : syllables(random, 2, 4));
+            String road = syllables(random, 2, 3) + " " + STREET_TYPES[random.nextInt(STREET_TYPES.length)];
+            Order order = new Order(customer, 10_000_000 + random.nextInt(90_000_000),
+                    (1 + random.nextInt(300)) + " " + road + ", SW" + random.nextInt(20));
+            index.add(order);
+            orderIds[i] = order.getOrderId();
+            if (i == (orderCount / 2 | 1)) name = customer; // Odd, so it survives the removals below
+            if (i == orderCount / 3) street = road;
+            if (longSurname == null && i >= orderCount / 4 && customer.length() - customer.indexOf(' ') > 12) {
+                longSurname = customer.substring(customer.indexOf(' ') + 1).toLowerCase();
+            }
+        }
+        double buildMillis = (System.nanoTime() - start) / 1e6;
+        long indexBytes = usedHeap() - heapBefore; // Orders are dropped once indexed, so this is the index
+
+        System.out.printf("%d orders indexed in %.0f ms (%.2f us each), index heap about %.0f MB%n", orderCount,
+                buildMillis, buildMillis * 1000 / orderCount, indexBytes / 1048576.0);
+
+        String surname = name.split(" ")[1].toLowerCase();
+        String[] queries = {
+            "s", "sur", "surname1", "sa", "m", "road", "sw1",
+            surname, name, street, street.substring(0, 4) + " " + surname.substring(0, 2),
+            typo(surname, surname.length() / 2),
+            typo(typo(longSurname, 3), longSurname.length() - 3), "s s", "sur road", "xqzv"
+        };
+        timeQueries(index, queries, repeats);
+
+        // Remove every other order, as deliveries and cancellations would
+        start = System.nanoTime();
+        for (int i = 0; i < orderCount; i += 2) {
+            index.remove(orderIds[i]);
+        }
+        double removeMillis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("removed %d orders in %.0f ms (%.2f us each), %d left%n", (orderCount + 1) / 2,
+                removeMillis, removeMillis * 1000 / ((orderCount + 1) / 2), index.size());
+        timeQueries(index, new String[] {"s", "sur", surname}, repeats);
+    }
+
+    // Nothing is printed until every query is timed, so no compiling of printing code gets in the way
+    private static void timeQueries(OrderSearchIndex index, String[] queries, int repeats) {
+        for (int pass = 0; pass < repeats; pass++) {
+            for (String query : queries) {
+                index.search(query, LIMIT);
+            }
+        }
+        int[] hits = new int[queries.length];
+        long[][] times = new long[queries.length][repeats];
+        for (int q = 0; q < queries.length; q++) {
+            for (int r = 0; r < repeats; r++) {
+                long start = System.nanoTime();
+                hits[q] = index.search(queries[q], LIMIT).size();
+                times[q][r] = System.nanoTime() - start;
+            }
+            Arrays.sort(times[q]);
+        }
+
+        System.out.printf("%-24s %6s %9s %9s%n", "query", "hits", "p50 ms", "p99 ms");
+        for (int q = 0; q < queries.length; q++) {
+            System.out.printf("%-24s %6d %9.3f %9.3f%n", "\"" + queries[q] + "\"", hits[q],
+                    times[q][repeats / 2] / 1e6, times[q][repeats * 99 / 100] / 1e6);
+        }
+    }
+
+    private static String syllables(Random random, int min, int max) {
+        StringBuilder word = new StringBuilder();
+        int count = min + random.nextInt(max - min + 1);
+        for (int i = 0; i < count; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+
+    // Swaps the letter at the index with the one before it
+    private static String typo(String word, int i) {
+        return word.substring(0, i - 1) + word.charAt(i) + word.charAt(i - 1) + word.substring(i + 1);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
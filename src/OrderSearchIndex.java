@@ -0,0 +1,578 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Search index over customer names and delivery addresses of pending and recently
+ * delivered orders, for phone staff looking up an order from part of a name or street.
+ * Each indexed order gets a document number, handed out in the order they are added.
+ * Names and addresses are split into lower-case words:
+ * - a sorted map from word to the ascending int array of documents containing it answers
+ *   prefix queries ("smi" finds "smith")
+ * - a sorted map of the words spelt backwards finds words by how they end
+ * A word one typo away from a misspelt query word is one of the few hundred strings made
+ * by a single edit of it, so those are simply looked up. For two typos, at least one half
+ * of the query word is within one typo of the start or of the end of the word it should
+ * match, so only words starting or ending that way are checked by edit distance.
+ * The query term matching the fewest orders walks the merged document arrays of its words
+ * in ascending order, checking the other terms against each order it meets. That costs a
+ * cursor per word, so when the terms match so many orders that checking orders oldest
+ * first finds the hits sooner, and whenever every term matches more than a few thousand
+ * words, as "s" does, the orders themselves are checked instead. Either way the search
+ * stops once it has enough hits. Matching words are streamed from the sorted map, never
+ * copied.
+ * Removing an order only clears its document; a word's array is compacted once most of it
+ * is removed orders, and all documents are renumbered once most numbers handed out are
+ * unused. Delivered orders stay searchable until they fall out of a fixed-size ring of
+ * recent deliveries.
+ * See OrderSearchBenchmark for build time, heap and query latency on a million orders.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderSearchIndex {
+
+    private static final int MAX_MERGED_WORDS = 4096; // Terms matching more words are checked order by order
+    private static final int MIN_RENUMBER_DOCS = 1024; // Never renumber fewer documents than this
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{Alnum}]+");
+
+    private final LongIntHashMap docByOrderId = new LongIntHashMap();
+    private Hit[] hitByDoc = new Hit[16]; // Null once the order is removed
+    private int docCount; // Document numbers handed out since the last renumbering
+
+    private final TreeMap<String, Postings> postingsByWord = new TreeMap<>();
+    private final TreeMap<String, String> wordsByReversal = new TreeMap<>(); // Backwards spelling to word
+    private final StringBuilder alphabet = new StringBuilder(); // Every letter seen in a word
+
+    // Ring of recently delivered order ids, oldest at head
+    private final long[] delivered;
+    private int deliveredHead;
+    private int deliveredCount;
+
+    /**
+     * Constructs an empty index.
+     *
+     * @param recentDeliveries how many delivered orders stay searchable
+     */
+    public OrderSearchIndex(int recentDeliveries) {
+        if (recentDeliveries < 0) {
+            throw new IllegalArgumentException("Recent deliveries cannot be negative.");
+        }
+        this.delivered = new long[recentDeliveries];
+    }
+
+    /**
+     * Indexes a pending order.
+     *
+     * @param order the order to index
+     */
+    public synchronized void add(Order order) {
+        if (docByOrderId.containsKey(order.getOrderId())) return;
+        Hit hit = new Hit(order.getOrderId(), order.getCustomerName(), order.getCustomerDeliveryAddress());
+
+        if (docCount == hitByDoc.length) hitByDoc = Arrays.copyOf(hitByDoc, docCount * 2);
+        int doc = docCount++;
+        hitByDoc[doc] = hit;
+        docByOrderId.put(hit.orderId, doc);
+
+        for (int i = 0; i < hit.words.length; i++) {
+            Postings postings = postingsByWord.get(hit.words[i]);
+            if (postings == null) {
+                postings = new Postings(hit.words[i]);
+                postingsByWord.put(postings.word, postings);
+                wordsByReversal.put(reverse(postings.word), postings.word);
+                for (int c = 0; c < postings.word.length(); c++) {
+                    char letter = postings.word.charAt(c);
+                    if (alphabet.indexOf(String.valueOf(letter)) < 0) alphabet.append(letter);
+                }
+            }
+            hit.words[i] = postings.word; // Share one copy of each word
+            postings.add(doc);
+        }
+    }
+
+    /**
+     * Marks an order delivered. It stays searchable until enough later deliveries push it out.
+     *
+     * @param orderId the id of the delivered order
+     */
+    public synchronized void markDelivered(long orderId) {
+        int doc = docByOrderId.get(orderId);
+        if (doc == LongIntHashMap.MISSING) return;
+        hitByDoc[doc].delivered = true;
+
+        if (delivered.length == 0) {
+            remove(orderId);
+            return;
+        }
+        if (deliveredCount == delivered.length) {
+            remove(delivered[deliveredHead]);
+            deliveredHead = (deliveredHead + 1) % delivered.length;
+            deliveredCount--;
+        }
+        delivered[(deliveredHead + deliveredCount) % delivered.length] = orderId;
+        deliveredCount++;
+    }
+
+    /**
+     * Removes an order from the index, for example when it is cancelled.
+     *
+     * @param orderId the id of the order
+     */
+    public synchronized void remove(long orderId) {
+        int doc = docByOrderId.remove(orderId);
+        if (doc == LongIntHashMap.MISSING) return;
+        Hit hit = hitByDoc[doc];
+        hitByDoc[doc] = null;
+
+        for (String word : hit.words) {
+            Postings postings = postingsByWord.get(word);
+            if (--postings.live == 0) {
+                postingsByWord.remove(word);
+                wordsByReversal.remove(reverse(word));
+            } else if (postings.size > postings.live * 2) {
+                postings.compact(hitByDoc);
+            }
+        }
+        if (docCount >= MIN_RENUMBER_DOCS && docCount > docByOrderId.size() * 2) renumber();
+    }
+
+    /**
+     * Finds orders whose name or address matches every word of the query. A query word
+     * matches the indexed words that start with it; if there are none, it matches words
+     * within one typo of it, a typo being a wrong, missing, extra or swapped letter. A query
+     * word of eight letters or more with no word one typo away matches words two typos away.
+     *
+     * @param query the words to search for
+     * @param limit the most hits to return
+     * @return the matching orders, pending before delivered, oldest first
+     */
+    public synchronized ArrayList<Hit> search(String query, int limit) {
+        ArrayList<Hit> hits = new ArrayList<>();
+        ArrayList<String> words = split(query);
+        if (words.isEmpty() || limit <= 0) return hits;
+
+        // Drive the search with the mergeable term matching the fewest orders
+        ArrayList<Term> terms = new ArrayList<>();
+        Term driving = null;
+        for (String word : words) {
+            Term term = termFor(word);
+            if (!term.broad && term.size == 0) return hits;
+            if (!term.broad && (driving == null || term.size < driving.size)) driving = term;
+            terms.add(term);
+        }
+        if (driving != null && ordersToCheck(terms, limit) < driving.postings.size()) driving = null;
+
+        ArrayList<Hit> deliveredHits = new ArrayList<>();
+        if (driving != null) {
+            terms.remove(driving);
+            PriorityQueue<DocCursor> cursors = new PriorityQueue<>();
+            for (Postings postings : driving.postings) {
+                DocCursor cursor = new DocCursor(postings);
+                if (cursor.advance(hitByDoc)) cursors.add(cursor);
+            }
+            int lastDoc = -1;
+            while (!cursors.isEmpty() && hits.size() < limit) {
+                DocCursor cursor = cursors.poll();
+                int doc = cursor.current;
+                if (cursor.advance(hitByDoc)) cursors.add(cursor);
+                if (doc == lastDoc) continue; // The same order matched through another word
+                lastDoc = doc;
+                collect(hitByDoc[doc], terms, hits, deliveredHits, limit);
+            }
+        } else {
+            // Matching orders are common enough to find by checking them oldest first
+            for (int doc = 0; doc < docCount && hits.size() < limit; doc++) {
+                if (hitByDoc[doc] != null) collect(hitByDoc[doc], terms, hits, deliveredHits, limit);
+            }
+        }
+
+        for (int i = 0; i < deliveredHits.size() && hits.size() < limit; i++) {
+            hits.add(deliveredHits.get(i));
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the number of orders that can be found, pending or delivered.
+     *
+     * @return the indexed order count
+     */
+    public synchronized int size() {
+        return docByOrderId.size();
+    }
+
+    // ================= Matching ================= //
+
+    // Roughly how many orders must be checked to find the hits, were the terms independent
+    private double ordersToCheck(ArrayList<Term> terms, int limit) {
+        double orders = limit;
+        for (Term term : terms) {
+            orders *= (double) docCount / Math.max(1, term.size);
+        }
+        return orders;
+    }
+
+    // The words starting with the query word, or failing that, the words close to it
+    private Term termFor(String word) {
+        Term prefix = new Term(word, null);
+        for (Postings postings : postingsByWord.subMap(word, word + Character.MAX_VALUE).values()) {
+            if (!prefix.add(postings)) break;
+        }
+        if (prefix.broad || !prefix.postings.isEmpty()) return prefix;
+
+        HashSet<String> close = closeWords(word);
+        Term fuzzy = new Term(null, close);
+        for (String match : close) {
+            if (!fuzzy.add(postingsByWord.get(match))) break;
+        }
+        return fuzzy;
+    }
+
+    // Indexed words within one typo of the term, or failing that two for terms of eight letters or more
+    private HashSet<String> closeWords(String term) {
+        HashSet<String> matches = new HashSet<>();
+        for (String variant : oneEditVariants(term)) {
+            if (postingsByWord.containsKey(variant)) matches.add(variant);
+        }
+        if (!matches.isEmpty() || term.length() < 8) return matches;
+
+        // With two typos, one half of the term is at most one typo away from the start or the end of the word
+        LetterCounts letters = new LetterCounts(term);
+        HashSet<String> checked = new HashSet<>();
+        int half = term.length() / 2;
+        for (String start : shortestPrefixes(oneEditVariants(term.substring(0, half)))) {
+            for (String word : postingsByWord.subMap(start, start + Character.MAX_VALUE).keySet()) {
+                checkTwoEdits(term, word, letters, checked, matches);
+            }
+        }
+        for (String end : shortestPrefixes(oneEditVariants(reverse(term.substring(half))))) {
+            for (String word : wordsByReversal.subMap(end, end + Character.MAX_VALUE).values()) {
+                checkTwoEdits(term, word, letters, checked, matches);
+            }
+        }
+        return matches;
+    }
+
+    // Drops every string that extends another, so no range of the word maps is walked twice
+    private static ArrayList<String> shortestPrefixes(HashSet<String> strings) {
+        ArrayList<String> sorted = new ArrayList<>(strings);
+        sorted.sort(null);
+        ArrayList<String> shortest = new ArrayList<>();
+        for (String s : sorted) {
+            if (shortest.isEmpty() || !s.startsWith(shortest.get(shortest.size() - 1))) shortest.add(s);
+        }
+        return shortest;
+    }
+
+    private static void checkTwoEdits(String term, String word, LetterCounts letters, HashSet<String> checked,
+                                      HashSet<String> matches) {
+        if (Math.abs(word.length() - term.length()) > 2 || letters.difference(word) > 4 || !checked.add(word)) return;
+        if (withinEdits(term, word, 2)) matches.add(word);
+    }
+
+    // The text itself and every string one wrong, missing, extra or swapped letter away, over the indexed letters
+    private HashSet<String> oneEditVariants(String text) {
+        HashSet<String> variants = new HashSet<>();
+        variants.add(text);
+        for (int i = 0; i <= text.length(); i++) {
+            String before = text.substring(0, i);
+            for (int k = 0; k < alphabet.length(); k++) {
+                variants.add(before + alphabet.charAt(k) + text.substring(i));
+                if (i < text.length()) variants.add(before + alphabet.charAt(k) + text.substring(i + 1));
+            }
+            if (i < text.length()) variants.add(before + text.substring(i + 1));
+            if (i + 1 < text.length()) {
+                variants.add(before + text.charAt(i + 1) + text.charAt(i) + text.substring(i + 2));
+            }
+        }
+        return variants;
+    }
+
+    // Adds a hit that matches the other terms, pending ones first
+    private static void collect(Hit hit, ArrayList<Term> terms, ArrayList<Hit> hits,
+                                ArrayList<Hit> deliveredHits, int limit) {
+        for (Term term : terms) {
+            if (!term.matchesAny(hit.words)) return;
+        }
+        if (!hit.delivered) hits.add(hit);
+        else if (deliveredHits.size() < limit) deliveredHits.add(hit);
+    }
+
+    // Edit distance counting a swap of neighbouring letters as one edit, limited to a band
+    // around the diagonal and stopping once a whole row exceeds the limit
+    private static boolean withinEdits(String a, String b, int maxEdits) {
+        int outside = maxEdits + 1;
+        int[] older = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = Math.min(j, outside);
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            Arrays.fill(current, outside);
+            current[0] = Math.min(i, outside);
+            int best = current[0];
+            for (int j = Math.max(1, i - maxEdits); j <= Math.min(b.length(), i + maxEdits); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance = Math.min(distance, older[j - 2] + 1);
+                }
+                current[j] = Math.min(distance, outside);
+                best = Math.min(best, current[j]);
+            }
+            if (best > maxEdits) return false;
+
+            int[] recycled = older;
+            older = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()] <= maxEdits;
+    }
+
+    // ================= Documents ================= //
+
+    // Numbers the remaining orders from 0 again, keeping their order, and rebuilds every word's array
+    private void renumber() {
+        for (Postings postings : postingsByWord.values()) {
+            postings.size = 0;
+            postings.live = 0;
+        }
+        Hit[] renumbered = new Hit[Math.max(16, docByOrderId.size() * 2)];
+        int kept = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            Hit hit = hitByDoc[doc];
+            if (hit == null) continue;
+            renumbered[kept] = hit;
+            docByOrderId.put(hit.orderId, kept);
+            for (String word : hit.words) {
+                postingsByWord.get(word).add(kept);
+            }
+            kept++;
+        }
+        hitByDoc = renumbered;
+        docCount = kept;
+    }
+
+    // ================= Words ================= //
+
+    private static String[] wordsOf(String customerName, String address) {
+        ArrayList<String> words = split(customerName);
+        for (String word : split(address)) {
+            if (!words.contains(word)) words.add(word);
+        }
+        return words.toArray(new String[0]);
+    }
+
+    // Lower-case runs of letters and digits
+    private static ArrayList<String> split(String text) {
+        ArrayList<String> words = new ArrayList<>();
+        if (text == null) return words;
+        for (String part : NON_WORD.split(text.toLowerCase())) {
+            if (!part.isEmpty()) words.add(part);
+        }
+        return words;
+    }
+
+    private static String reverse(String word) {
+        return new StringBuilder(word).reverse().toString();
+    }
+
+    /**
+     * The documents containing one word, in ascending order. Removed documents stay in the
+     * array until it is compacted.
+     */
+    private static final class Postings {
+
+        private final String word;
+        private int[] docs = new int[2];
+        private int size;
+        private int live; // Documents in the array that are still indexed
+
+        Postings(String word) {
+            this.word = word;
+        }
+
+        void add(int doc) {
+            if (size == docs.length) docs = Arrays.copyOf(docs, size * 2);
+            docs[size++] = doc;
+            live++;
+        }
+
+        // Drops removed documents; a document number is never reused before renumbering
+        void compact(Hit[] hitByDoc) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (hitByDoc[docs[i]] != null) docs[kept++] = docs[i];
+            }
+            size = kept;
+            if (docs.length > kept * 4) docs = Arrays.copyOf(docs, Math.max(2, kept * 2));
+        }
+    }
+
+    /**
+     * How often each letter occurs in a term, to rule out words cheaply before an edit
+     * distance check. A wrong letter changes two counts by one, a missing or extra letter
+     * one count and a swap none, so words whose counts differ from the term's by more than
+     * twice the allowed typos cannot match. Letters share 64 counters, which can only make
+     * the difference smaller, never rule out a real match.
+     */
+    private static final class LetterCounts {
+
+        private final int[] counts = new int[64];
+        private final int[] scratch = new int[64];
+
+        LetterCounts(String term) {
+            for (int i = 0; i < term.length(); i++) {
+                counts[term.charAt(i) & 63]++;
+            }
+        }
+
+        // Sum over the counters of how far the word's count is from the term's
+        int difference(String word) {
+            System.arraycopy(counts, 0, scratch, 0, counts.length);
+            for (int i = 0; i < word.length(); i++) {
+                scratch[word.charAt(i) & 63]--;
+            }
+            int difference = 0;
+            for (int count : scratch) {
+                difference += Math.abs(count);
+            }
+            return difference;
+        }
+    }
+
+    /**
+     * One query word: either a prefix or a set of close words, with the documents of the
+     * indexed words it matches unless it matches too many to merge.
+     */
+    private static final class Term {
+
+        private final String prefix; // Null for a term matched by close words
+        private final HashSet<String> closeWords;
+        private final ArrayList<Postings> postings = new ArrayList<>();
+        private boolean broad; // Matches more than MAX_MERGED_WORDS words
+        private long size; // Indexed orders over the matching words, counted once per word; a lower bound if broad
+
+        Term(String prefix, HashSet<String> closeWords) {
+            this.prefix = prefix;
+            this.closeWords = closeWords;
+        }
+
+        // Adds a matching word; returns false once the term has become too broad to merge
+        boolean add(Postings matched) {
+            if (postings.size() == MAX_MERGED_WORDS) {
+                broad = true;
+                postings.clear();
+                return false;
+            }
+            postings.add(matched);
+            size += matched.live;
+            return true;
+        }
+
+        boolean matchesAny(String[] words) {
+            for (String word : words) {
+                if (prefix != null ? word.startsWith(prefix) : closeWords.contains(word)) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * One word's documents during a search, ordered by the document it is currently on.
+     */
+    private static final class DocCursor implements Comparable<DocCursor> {
+
+        private final Postings postings;
+        private int index;
+        private int current;
+
+        DocCursor(Postings postings) {
+            this.postings = postings;
+        }
+
+        // Moves to the next document that is still indexed
+        boolean advance(Hit[] hitByDoc) {
+            while (index < postings.size) {
+                int doc = postings.docs[index++];
+                if (hitByDoc[doc] != null) {
+                    current = doc;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int compareTo(DocCursor other) {
+            return Integer.compare(current, other.current);
+        }
+    }
+
+    /**
+     * An order found by a search. Holds only the details needed to recognise it.
+     */
+    public static class Hit {
+
+        private final long orderId;
+        private final String customerName;
+        private final String address;
+        private final String[] words;
+        private boolean delivered;
+
+        Hit(long orderId, String customerName, String address) {
+            this.orderId = orderId;
+            this.customerName = customerName;
+            this.address = address;
+            this.words = wordsOf(customerName, address);
+        }
+
+        /**
+         * Returns the id of the order.
+         *
+         * @return the order id
+         */
+        public long getOrderId() {
+            return orderId;
+        }
+
+        /**
+         * Returns the customer's name.
+         *
+         * @return the name
+         */
+        public String getCustomerName() {
+            return customerName;
+        }
+
+        /**
+         * Returns the delivery address.
+         *
+         * @return the address
+         */
+        public String getAddress() {
+            return address;
+        }
+
+        /**
+         * Returns whether the order has already been delivered.
+         *
+         * @return true if delivered, false if still pending
+         */
+        public boolean isDelivered() {
+            return delivered;
+        }
+
+        @Override
+        public String toString() {
+            return "Order " + orderId + ": " + customerName + ", " + address + (delivered ? " (delivered)" : " (pending)");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Outcome of submitting an order: whether it was queued, whether it repeated an
+ * earlier submission, and if it was turned away, how long it would have waited.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderSubmission {
+
+    private final Order order;
+    private final boolean accepted;
+    private final boolean duplicate;
+    private final long estimatedWaitNanos;
+
+    /**
+     * Constructs a submission outcome.
+     *
+     * @param order              the queued order: the original one for a duplicate, otherwise the order submitted
+     * @param accepted           whether the order is queued
+     * @param duplicate          whether the submission repeated an earlier one
+     * @param estimatedWaitNanos the estimated wait behind the queue in nanoseconds, 0 for a duplicate
+     */
+    public OrderSubmission(Order order, boolean accepted, boolean duplicate, long estimatedWaitNanos) {
+        this.order = order;
+        this.accepted = accepted;
+        this.duplicate = duplicate;
+        this.estimatedWaitNanos = estimatedWaitNanos;
+    }
+
+    /**
+     * Returns the order the submission refers to. For a duplicate this is the order first
+     * submitted with the same key; otherwise it is the order submitted.
+     *
+     * @return the order
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Checks whether the order is queued, either now or by an earlier submission.
+     *
+     * @return true if queued, false if the kitchen is over capacity
+     */
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Checks whether the submission repeated an earlier one with the same key.
+     *
+     * @return true if nothing new was queued because the key was seen before
+     */
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    /**
+     * Returns the estimated wait behind the queue when the submission was decided.
+     * For a rejected order, this is how long it would have waited.
+     *
+     * @return the estimated wait in nanoseconds, or 0 for a duplicate or if no drain rate is known yet
+     */
+    public long getEstimatedWaitNanos() {
+        return estimatedWaitNanos;
+    }
+
+    /**
+     * Returns the estimated wait in whole minutes, rounded down.
+     *
+     * @return the estimated wait in minutes
+     */
+    public long getEstimatedWaitMinutes() {
+        return estimatedWaitNanos / 60_000_000_000L;
+    }
+
+    @Override
+    public String toString() {
+        if (duplicate) return "Order " + order.getOrderId() + " was already submitted.";
+        if (accepted) return "Order " + order.getOrderId() + " accepted.";
+        return "Order " + order.getOrderId() + " turned away; estimated wait " + getEstimatedWaitMinutes() + " minutes.";
+    }
+}
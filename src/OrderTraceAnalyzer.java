@@ -0,0 +1,160 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Offline analyzer for flight recordings containing the takeaway order lifecycle events.
+ * Prints, for each stage (validation, pricing, queue wait, render), the event count and
+ * latency percentiles, then the slowest orders with their time split across stages.
+ * Optionally writes a folded-stack file (stage;frame;...;frame total-nanos per line)
+ * that flame graph tools accept directly.
+ * Usage: java OrderTraceAnalyzer recording.jfr [folded-stacks.txt]
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class OrderTraceAnalyzer {
+
+    private static final String EVENT_PREFIX = "takeaway.Order";
+    private static final int SLOWEST_ORDERS = 10;
+
+    /**
+     * Reads the recording named on the command line and prints the summaries.
+     *
+     * @param args the recording path, and optionally a path for folded stacks
+     * @throws IOException if the recording or output file cannot be accessed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java OrderTraceAnalyzer recording.jfr [folded-stacks.txt]");
+            return;
+        }
+
+        TreeMap<String, ArrayList<Long>> latencies = new TreeMap<>();
+        HashMap<Long, long[]> perOrder = new HashMap<>();
+        HashMap<String, Long> foldedStacks = new HashMap<>();
+        ArrayList<String> stages = new ArrayList<>();
+
+        for (RecordedEvent event : RecordingFile.readAllEvents(Paths.get(args[0]))) {
+            String name = event.getEventType().getName();
+            if (!name.startsWith(EVENT_PREFIX)) continue;
+
+            String stage = name.substring(EVENT_PREFIX.length());
+            long nanos = stage.equals("Queue")
+                    ? event.getLong("queueTime")
+                    : event.getDuration().toNanos();
+
+            latencies.computeIfAbsent(stage, s -> new ArrayList<>()).add(nanos);
+            if (!stages.contains(stage)) stages.add(stage);
+
+            // Stages are numbered as first seen, so an order's split grows when a new one appears
+            long orderId = event.getLong("orderId");
+            long[] split = perOrder.get(orderId);
+            if (split == null || split.length < stages.size()) {
+                split = split == null ? new long[stages.size()] : Arrays.copyOf(split, stages.size());
+                perOrder.put(orderId, split);
+            }
+            split[stages.indexOf(stage)] += nanos;
+
+            foldedStacks.merge(fold(stage, event.getStackTrace()), nanos, Long::sum);
+        }
+
+        if (latencies.isEmpty()) {
+            System.out.println("No takeaway order events found in " + args[0]);
+            return;
+        }
+
+        printStageSummary(latencies);
+        printSlowestOrders(perOrder, stages);
+        if (args.length > 1) writeFoldedStacks(Paths.get(args[1]), foldedStacks);
+    }
+
+    /**
+     * Prints count and latency percentiles for every stage.
+     */
+    private static void printStageSummary(TreeMap<String, ArrayList<Long>> latencies) {
+        System.out.println("Per-stage latency (microseconds)");
+        System.out.printf("%-12s %10s %10s %10s %10s %10s%n", "Stage", "Count", "p50", "p90", "p99", "Max");
+        for (Map.Entry<String, ArrayList<Long>> entry : latencies.entrySet()) {
+            long[] sorted = entry.getValue().stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.printf("%-12s %10d %10.1f %10.1f %10.1f %10.1f%n", entry.getKey(), sorted.length,
+                    percentile(sorted, 0.50) / 1e3, percentile(sorted, 0.90) / 1e3,
+                    percentile(sorted, 0.99) / 1e3, sorted[sorted.length - 1] / 1e3);
+        }
+    }
+
+    /**
+     * Prints the orders with the largest total recorded time, split by stage.
+     */
+    private static void printSlowestOrders(HashMap<Long, long[]> perOrder, List<String> stages) {
+        ArrayList<Map.Entry<Long, long[]>> orders = new ArrayList<>(perOrder.entrySet());
+        orders.sort((a, b) -> Long.compare(Arrays.stream(b.getValue()).sum(), Arrays.stream(a.getValue()).sum()));
+
+        System.out.println();
+        System.out.println("Slowest orders (microseconds per stage)");
+        StringBuilder header = new StringBuilder(String.format("%-10s", "Order"));
+        for (String stage : stages) {
+            header.append(String.format(" %12s", stage));
+        }
+        System.out.println(header);
+
+        for (int i = 0; i < Math.min(SLOWEST_ORDERS, orders.size()); i++) {
+            StringBuilder row = new StringBuilder(String.format("%-10d", orders.get(i).getKey()));
+            long[] split = orders.get(i).getValue();
+            for (int s = 0; s < stages.size(); s++) {
+                row.append(String.format(" %12.1f", (s < split.length ? split[s] : 0) / 1e3));
+            }
+            System.out.println(row);
+        }
+    }
+
+    /**
+     * Writes the folded stacks, heaviest first.
+     */
+    private static void writeFoldedStacks(Path path, HashMap<String, Long> foldedStacks) throws IOException {
+        ArrayList<Map.Entry<String, Long>> stacks = new ArrayList<>(foldedStacks.entrySet());
+        stacks.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+
+        try (PrintWriter out = new PrintWriter(path.toFile())) {
+            for (Map.Entry<String, Long> stack : stacks) {
+                out.println(stack.getKey() + " " + stack.getValue());
+            }
+        }
+        System.out.println();
+        System.out.println("Wrote " + stacks.size() + " folded stacks to " + path);
+    }
+
+    /**
+     * Builds a root-first folded stack line, starting with the stage name.
+     */
+    private static String fold(String stage, RecordedStackTrace stackTrace) {
+        StringBuilder folded = new StringBuilder(stage);
+        if (stackTrace == null) return folded.toString();
+
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            RecordedFrame frame = frames.get(i);
+            folded.append(';')
+                    .append(frame.getMethod().getType().getName())
+                    .append('.')
+                    .append(frame.getMethod().getName());
+        }
+        return folded.toString();
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
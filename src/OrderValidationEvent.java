@@ -0,0 +1,25 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering the checks an order passes before it is queued.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+@Name("takeaway.OrderValidation")
+@Label("Order Validation")
+@Category({"Takeaway", "Order Lifecycle"})
+@Description("Submission checks run before an order is queued")
+public class OrderValidationEvent extends jdk.jfr.Event {
+
+    @Label("Order ID")
+    @Description("For a duplicate submission, the order first submitted with the key")
+    long orderId;
+
+    @Label("Accepted")
+    @Description("False if the submission was a duplicate or was turned away")
+    boolean accepted;
+}
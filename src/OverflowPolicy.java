@@ -0,0 +1,80 @@
+/**
+ * What an OrderEventBus publisher does when a handler has fallen a full ring behind.
+ * block()       – waits for the handler to catch up; it never misses an event.
+ * blockFor(ms)  – waits up to the timeout for each event, then lets the handler miss it.
+ * drop()        – never waits; the handler misses whatever is overwritten before it reads it.
+ * A handler that misses events counts them and logs a warning, so a dashboard fed by it
+ * can say its totals are incomplete.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public final class OverflowPolicy {
+
+    private static final OverflowPolicy BLOCK = new OverflowPolicy(Long.MAX_VALUE);
+    private static final OverflowPolicy DROP = new OverflowPolicy(0);
+
+    private final long timeoutNanos;
+
+    private OverflowPolicy(long timeoutNanos) {
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /**
+     * Returns the policy that makes publishers wait as long as the handler needs.
+     *
+     * @return the blocking policy
+     */
+    public static OverflowPolicy block() {
+        return BLOCK;
+    }
+
+    /**
+     * Returns a policy that makes publishers wait up to a timeout per event.
+     *
+     * @param timeoutMillis the longest wait for one event, in milliseconds
+     * @return the policy
+     * @throws IllegalArgumentException if the timeout is not positive
+     */
+    public static OverflowPolicy blockFor(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive.");
+        }
+        return new OverflowPolicy(timeoutMillis * 1_000_000);
+    }
+
+    /**
+     * Returns the policy that never makes publishers wait.
+     *
+     * @return the dropping policy
+     */
+    public static OverflowPolicy drop() {
+        return DROP;
+    }
+
+    /**
+     * Checks whether a handler with this policy can miss events.
+     *
+     * @return false only for the blocking policy
+     */
+    boolean isLossy() {
+        return timeoutNanos != Long.MAX_VALUE;
+    }
+
+    /**
+     * Checks whether a publisher that has already waited this long must keep waiting.
+     *
+     * @param waitedNanos how long the publisher has waited for this event
+     * @return true if the handler still holds the publisher back
+     */
+    boolean holdsBack(long waitedNanos) {
+        return waitedNanos < timeoutNanos;
+    }
+
+    @Override
+    public String toString() {
+        if (this == BLOCK) return "block";
+        if (timeoutNanos == 0) return "drop";
+        return "block for " + timeoutNanos / 1_000_000 + " ms";
+    }
+}
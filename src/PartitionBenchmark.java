@@ -0,0 +1,211 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Loopback check and intake benchmark for PartitionedOrderStore.
+ * For each worker count, starts that many PartitionWorker JVMs on this machine, connects a
+ * store to them over loopback sockets and times a fixed number of producer threads adding
+ * orders one at a time, as tablets submitting concurrently would. It then delivers a fifth
+ * of the orders and checks they come out in arrival order, cancels some, adds one worker and
+ * removes another to force rebalancing, and checks that each remaining worker holds exactly
+ * the orders the store routes to it and that the removed worker was emptied.
+ * Usage: java PartitionBenchmark [orders] [producers] [workerCounts...]
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class PartitionBenchmark {
+
+    private static final String HOST = "127.0.0.1";
+
+    /**
+     * Runs the check for each worker count and prints the intake rates.
+     *
+     * @param args optional number of orders and producer threads, then the worker counts to
+     *             try (default 1 2 4)
+     * @throws Exception if a worker cannot be started or reached
+     */
+    public static void main(String[] args) throws Exception {
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int producers = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        ArrayList<Integer> workerCounts = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            workerCounts.add(Integer.parseInt(args[i]));
+        }
+        if (workerCounts.isEmpty()) {
+            workerCounts.add(1);
+            workerCounts.add(2);
+            workerCounts.add(4);
+        }
+
+        System.out.printf("%d available processors, %d producer threads%n",
+                Runtime.getRuntime().availableProcessors(), producers);
+        System.out.println("workers   orders/s   speedup   check");
+        double baseline = 0;
+        boolean allPassed = true;
+        for (int workers : workerCounts) {
+            Result result = run(workers, orderCount, producers);
+            if (baseline == 0) baseline = result.ordersPerSecond;
+            System.out.printf("%7d %10.0f %8.2fx   %s%n", workers, result.ordersPerSecond,
+                    result.ordersPerSecond / baseline, result.passed ? "ok" : "MISMATCH");
+            allPassed &= result.passed;
+        }
+        if (!allPassed) System.exit(1);
+    }
+
+    // Times concurrent intake across the given number of workers, then checks delivery,
+    // cancelling and rebalancing against what every worker holds
+    private static Result run(int workerCount, int orderCount, int producerCount) throws Exception {
+        ArrayList<Order> batch = buildOrders(orderCount, new Random(42));
+        ArrayList<Worker> workers = new ArrayList<>();
+        PartitionedOrderStore store = new PartitionedOrderStore(64);
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                Worker worker = Worker.start();
+                workers.add(worker);
+                store.addPartition(HOST, worker.port);
+            }
+
+            Thread[] producers = new Thread[producerCount];
+            for (int p = 0; p < producerCount; p++) {
+                int first = p;
+                producers[p] = new Thread(() -> {
+                    for (int i = first; i < batch.size(); i += producerCount) {
+                        store.add(batch.get(i));
+                    }
+                }, "producer-" + p);
+            }
+            long start = System.nanoTime();
+            for (Thread producer : producers) {
+                producer.start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            boolean passed = store.size() == orderCount;
+
+            // Deliveries must follow the arrival order the store iterates in
+            ArrayList<Long> arrivalOrder = new ArrayList<>();
+            for (Order order : store) {
+                arrivalOrder.add(order.getOrderId());
+            }
+            for (int i = 0; i < orderCount / 5; i++) {
+                passed &= store.poll().getOrderId() == arrivalOrder.get(i);
+            }
+
+            // Cancel every seventh order still pending, then move partitions around
+            HashSet<Long> cancelled = new HashSet<>();
+            for (int i = orderCount / 5; i < arrivalOrder.size(); i += 7) {
+                passed &= store.cancel(arrivalOrder.get(i)) != null;
+                cancelled.add(arrivalOrder.get(i));
+            }
+            Worker added = Worker.start();
+            workers.add(added);
+            store.addPartition(HOST, added.port);
+            Worker removed = workers.get(0);
+            store.removePartition(HOST + ":" + removed.port);
+            passed &= store.size() == orderCount - orderCount / 5 - cancelled.size();
+
+            ArrayList<Order> remaining = new ArrayList<>();
+            for (Order order : store) {
+                remaining.add(order);
+            }
+            store.close();
+
+            for (Worker worker : workers) {
+                ArrayList<Order> expected = new ArrayList<>();
+                if (worker != removed) {
+                    for (Order order : remaining) {
+                        if (worker.name.equals(store.partitionFor(order.getCustomerContactNumber()))) expected.add(order);
+                    }
+                }
+                passed &= worker.awaitSummary().equals("pending " + expected.size() + " " + PartitionWorker.checksum(expected));
+            }
+            return new Result(orderCount / seconds, passed);
+        } finally {
+            store.close();
+            for (Worker worker : workers) {
+                worker.process.destroy();
+            }
+        }
+    }
+
+    // One pizza and one pasta per order, so no promotion messages are printed
+    private static ArrayList<Order> buildOrders(int count, Random random) {
+        PizzaToppings[] pizzaToppings = PizzaToppings.values();
+        PastaTopping[] pastaToppings = PastaTopping.values();
+        ArrayList<Order> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Order order = new Order("Customer " + i, 10_000_000 + random.nextInt(90_000_000), i + " High Street");
+            ArrayList<PizzaToppings> toppings = new ArrayList<>();
+            toppings.add(pizzaToppings[random.nextInt(pizzaToppings.length)]);
+            order.addFoodItem(new Pizza(toppings));
+            order.addFoodItem(new Pasta(pastaToppings[random.nextInt(pastaToppings.length)]));
+            batch.add(order);
+        }
+        return batch;
+    }
+
+    /**
+     * A PartitionWorker process started by the benchmark.
+     */
+    private static final class Worker {
+        private final Process process;
+        private final BufferedReader output;
+        private final int port;
+        private final String name;
+
+        private Worker(Process process, BufferedReader output, int port) {
+            this.process = process;
+            this.output = output;
+            this.port = port;
+            this.name = HOST + ":" + port;
+        }
+
+        // Starts a worker JVM with this JVM's classpath and reads the port it listens on
+        private static Worker start() throws IOException {
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "PartitionWorker");
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            Process process = builder.start();
+
+            BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            String line = output.readLine();
+            if (line == null || !line.startsWith("listening ")) {
+                process.destroy();
+                throw new IOException("Worker did not start: " + line);
+            }
+            return new Worker(process, output, Integer.parseInt(line.substring("listening ".length())));
+        }
+
+        // Reads the summary the worker prints once the store has disconnected
+        private String awaitSummary() throws IOException, InterruptedException {
+            String line;
+            String summary = "";
+            while ((line = output.readLine()) != null) {
+                if (line.startsWith("pending ")) summary = line;
+            }
+            process.waitFor();
+            return summary;
+        }
+    }
+
+    /**
+     * Intake rate and check outcome for one worker count.
+     */
+    private static final class Result {
+        private final double ordersPerSecond;
+        private final boolean passed;
+
+        private Result(double ordersPerSecond, boolean passed) {
+            this.ordersPerSecond = ordersPerSecond;
+            this.passed = passed;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Worker process owning one partition of a PartitionedOrderStore.
+ * The worker holds the partition's pending orders itself, ordered by the arrival ticket the
+ * store gives each order, and answers the store's add, poll, peek, cancel, get and snapshot
+ * requests over one TCP connection. Orders travel in OrderCodec format and are decoded and
+ * indexed here, so the memory for the orders is spread across processes.
+ * Every reply to a request that can change the partition ends with the ticket of its new
+ * oldest order, which is how the store keeps delivery first come, first served across
+ * partitions. When the store disconnects, prints a summary of the orders still held and exits.
+ * Usage: java PartitionWorker [port]
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class PartitionWorker implements AutoCloseable {
+
+    // Requests from the store
+    static final byte ADD = 1;
+    static final byte POLL = 2;
+    static final byte PEEK = 3;
+    static final byte CANCEL = 4;
+    static final byte GET = 5;
+    static final byte SNAPSHOT = 6;
+
+    /** Head ticket reported for an empty partition. */
+    static final long EMPTY = Long.MAX_VALUE;
+
+    private final ServerSocket server;
+    private final TreeMap<Long, Order> ordersByTicket = new TreeMap<>();
+    private final HashMap<Long, Long> ticketByOrderId = new HashMap<>();
+
+    /**
+     * Opens the worker's port. Call {@link #run()} to serve the store.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public PartitionWorker(int port) throws IOException {
+        this.server = new ServerSocket(port);
+    }
+
+    /**
+     * Runs a worker until the store disconnects.
+     *
+     * @param args optional port to listen on; any free port if omitted
+     * @throws IOException if the port cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        try (PartitionWorker worker = new PartitionWorker(args.length > 0 ? Integer.parseInt(args[0]) : 0)) {
+            // The first line tells a launching process where to connect
+            System.out.println("listening " + worker.getPort());
+            System.out.flush();
+            worker.run();
+            System.out.println("pending " + worker.size() + " " + checksum(worker.ordersByTicket.values()));
+        }
+    }
+
+    /**
+     * Returns the port the worker is listening on.
+     *
+     * @return the worker's port
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Returns the number of orders the partition holds.
+     *
+     * @return the number of orders
+     */
+    public int size() {
+        return ordersByTicket.size();
+    }
+
+    /**
+     * Accepts the store and answers its requests until the connection is closed.
+     *
+     * @throws IOException if no store connection could be accepted
+     */
+    public void run() throws IOException {
+        try (Socket store = server.accept()) {
+            store.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(store.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(store.getOutputStream()));
+
+            while (true) {
+                byte request = in.readByte();
+                if (request == ADD) {
+                    long ticket = in.readLong();
+                    byte[] payload = new byte[in.readInt()];
+                    in.readFully(payload);
+                    out.writeBoolean(add(ticket, decode(payload)));
+                    out.writeLong(headTicket());
+                } else if (request == POLL) {
+                    Map.Entry<Long, Order> head = ordersByTicket.pollFirstEntry();
+                    if (head != null) ticketByOrderId.remove(head.getValue().getOrderId());
+                    writeOrder(out, head == null ? null : head.getValue());
+                    out.writeLong(headTicket());
+                } else if (request == PEEK) {
+                    writeOrder(out, ordersByTicket.isEmpty() ? null : ordersByTicket.firstEntry().getValue());
+                } else if (request == CANCEL) {
+                    Long ticket = ticketByOrderId.remove(in.readLong());
+                    writeOrder(out, ticket == null ? null : ordersByTicket.remove(ticket));
+                    out.writeLong(headTicket());
+                } else if (request == GET) {
+                    Long ticket = ticketByOrderId.get(in.readLong());
+                    writeOrder(out, ticket == null ? null : ordersByTicket.get(ticket));
+                } else if (request == SNAPSHOT) {
+                    out.writeInt(ordersByTicket.size());
+                    for (Map.Entry<Long, Order> entry : ordersByTicket.entrySet()) {
+                        out.writeLong(entry.getKey());
+                        writeOrder(out, entry.getValue());
+                    }
+                } else {
+                    throw new IOException("Unknown partition request: " + request);
+                }
+
+                // Replies to a batch of requests go out together
+                if (in.available() == 0) out.flush();
+            }
+        } catch (EOFException e) {
+            // Store closed the connection
+        }
+    }
+
+    /**
+     * Stops listening for the store.
+     */
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+
+    /**
+     * Combines the ids of a set of orders into one number that does not depend on their order.
+     *
+     * @param orders the orders
+     * @return the checksum
+     */
+    static long checksum(Iterable<Order> orders) {
+        long sum = 0;
+        for (Order order : orders) {
+            long h = order.getOrderId() * 0x9E3779B97F4A7C15L;
+            sum += h ^ (h >>> 29);
+        }
+        return sum;
+    }
+
+    // Adds an order unless one with the same id is already held
+    private boolean add(long ticket, Order order) {
+        if (ticketByOrderId.putIfAbsent(order.getOrderId(), ticket) != null) return false;
+        ordersByTicket.put(ticket, order);
+        return true;
+    }
+
+    private long headTicket() {
+        return ordersByTicket.isEmpty() ? EMPTY : ordersByTicket.firstKey();
+    }
+
+    private static Order decode(byte[] payload) throws IOException {
+        try {
+            return OrderCodec.decode(ByteBuffer.wrap(payload));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt order from store", e);
+        }
+    }
+
+    // Writes an order as its encoded length and bytes, or a length of 0 for none
+    private static void writeOrder(DataOutputStream out, Order order) throws IOException {
+        if (order == null) {
+            out.writeInt(0);
+            return;
+        }
+        byte[] payload = new byte[OrderCodec.encodedLength(order)];
+        OrderCodec.encode(order, ByteBuffer.wrap(payload));
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+}
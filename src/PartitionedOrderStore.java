@@ -0,0 +1,466 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OrderBook whose pending orders are split into partitions by customer contact number and
+ * held by worker processes (see PartitionWorker), one per partition.
+ * Orders are routed with a ConsistentHashRing, so every order from one customer lands in the
+ * same partition. The store keeps no copy of the orders: add sends the order to its owner,
+ * and poll, peek, cancel and get ask the workers, which return encoded copies. Every order is
+ * given an arrival ticket when added, and each worker reports the ticket of its oldest order
+ * after every change, so poll takes from the partition whose head arrived first and delivery
+ * stays first come, first served across partitions.
+ * Unlike the other books, the store is safe for concurrent use: requests to different
+ * partitions run in parallel and only requests to the same partition wait for each other.
+ * Cancel and get don't know the owner of an id, so they ask each partition in turn.
+ * Adding or removing a partition must not overlap other calls. Only the orders whose owner
+ * changed are moved: cancelled at the old worker and added with their ticket to the new one.
+ * If a worker's connection fails, its calls throw IllegalStateException.
+ * The store spreads the memory for pending orders across processes; it is not shown to raise
+ * throughput. Every request is a round trip, and on a single-core machine intake got slower
+ * as workers were added, since they compete for the same core (see PartitionBenchmark).
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class PartitionedOrderStore implements OrderBook, AutoCloseable {
+
+    private static final int MAX_BATCH = 256;
+
+    private final ConsistentHashRing ring;
+    private final ConcurrentHashMap<String, Partition> partitions = new ConcurrentHashMap<>();
+    private final AtomicLong nextTicket = new AtomicLong();
+    private final Object pollLock = new Object();
+
+    /**
+     * Constructs an empty store with no partitions.
+     *
+     * @param virtualNodes the number of ring points given to each partition
+     */
+    public PartitionedOrderStore(int virtualNodes) {
+        this.ring = new ConsistentHashRing(virtualNodes);
+    }
+
+    /**
+     * Connects to a worker, adds its partition and moves over the pending orders it now owns.
+     * The partition is named after the worker's host and port.
+     *
+     * @param host the worker's host name
+     * @param port the worker's port
+     * @return the partition name
+     * @throws IOException              if the worker cannot be reached
+     * @throws IllegalArgumentException if a partition with that name already exists
+     */
+    public String addPartition(String host, int port) throws IOException {
+        String name = host + ":" + port;
+        if (partitions.containsKey(name)) {
+            throw new IllegalArgumentException("Partition " + name + " already exists.");
+        }
+        Partition partition = new Partition(name, new Socket(host, port));
+        HashMap<Partition, ArrayList<Ticketed>> snapshots = new HashMap<>();
+        for (Partition other : partitions.values()) {
+            snapshots.put(other, other.snapshot());
+        }
+        partitions.put(name, partition);
+        ring.addNode(name);
+
+        // Only orders whose owner is now the new partition move
+        for (Partition previous : snapshots.keySet()) {
+            for (Ticketed entry : snapshots.get(previous)) {
+                if (name.equals(ring.nodeFor(entry.order.getCustomerContactNumber()))) {
+                    previous.cancel(entry.order.getOrderId());
+                    partition.add(entry.ticket, entry.order);
+                }
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Removes a partition, hands its pending orders to their new owners and closes the
+     * connection to its worker.
+     *
+     * @param name the partition name
+     * @throws IllegalStateException if it is the last partition and still holds orders
+     */
+    public void removePartition(String name) {
+        Partition partition = partitions.get(name);
+        if (partition == null) return;
+        ArrayList<Ticketed> moving = partition.snapshot();
+        if (partitions.size() == 1 && !moving.isEmpty()) {
+            throw new IllegalStateException("Cannot remove the last partition while it holds orders.");
+        }
+
+        ring.removeNode(name);
+        partitions.remove(name);
+        for (Ticketed entry : moving) {
+            partition.cancel(entry.order.getOrderId());
+            partitions.get(ring.nodeFor(entry.order.getCustomerContactNumber())).add(entry.ticket, entry.order);
+        }
+        partition.close();
+    }
+
+    /**
+     * Returns the partition that owns orders for the given contact number.
+     *
+     * @param contactNumber the customer's contact number
+     * @return the partition name, or null if there are no partitions
+     */
+    public String partitionFor(int contactNumber) {
+        return ring.nodeFor(contactNumber);
+    }
+
+    /**
+     * Sends an order to the worker owning its customer, behind every order added before it.
+     *
+     * @param order the order to add
+     * @throws IllegalStateException    if there are no partitions
+     * @throws IllegalArgumentException if an order with the same id is already pending
+     */
+    @Override
+    public void add(Order order) {
+        ownerOf(order).add(nextTicket.getAndIncrement(), order);
+    }
+
+    /**
+     * Adds several orders in the given order, sending each partition its share in one batch.
+     *
+     * @param orders the orders to add
+     * @throws IllegalStateException    if there are no partitions
+     * @throws IllegalArgumentException if an order with the same id is already pending
+     */
+    @Override
+    public void addAll(Iterable<Order> orders) {
+        HashMap<Partition, ArrayList<Ticketed>> batches = new HashMap<>();
+        for (Order order : orders) {
+            batches.computeIfAbsent(ownerOf(order), p -> new ArrayList<>())
+                    .add(new Ticketed(nextTicket.getAndIncrement(), order));
+        }
+        for (Partition partition : batches.keySet()) {
+            partition.addBatch(batches.get(partition));
+        }
+    }
+
+    /**
+     * Removes and returns the oldest pending order across all partitions.
+     *
+     * @return a copy of the oldest order, or null if the store is empty
+     */
+    @Override
+    public Order poll() {
+        synchronized (pollLock) {
+            while (true) {
+                Partition oldest = oldestPartition();
+                if (oldest == null) return null;
+                Order head = oldest.poll();
+                if (head != null) return head;
+                // Emptied by a concurrent cancel; its head ticket is up to date now
+            }
+        }
+    }
+
+    /**
+     * Returns the oldest pending order across all partitions without removing it.
+     *
+     * @return a copy of the oldest order, or null if the store is empty
+     */
+    @Override
+    public Order peek() {
+        Partition oldest = oldestPartition();
+        return oldest == null ? null : oldest.peek();
+    }
+
+    /**
+     * Cancels a pending order in whichever partition holds it.
+     *
+     * @param orderId the id of the order to cancel
+     * @return a copy of the cancelled order, or null if no pending order has that id
+     */
+    @Override
+    public Order cancel(long orderId) {
+        for (Partition partition : partitions.values()) {
+            Order cancelled = partition.cancel(orderId);
+            if (cancelled != null) return cancelled;
+        }
+        return null;
+    }
+
+    /**
+     * Looks up a pending order in whichever partition holds it.
+     *
+     * @param orderId the order id
+     * @return a copy of the order, or null if no pending order has that id
+     */
+    @Override
+    public Order get(long orderId) {
+        for (Partition partition : partitions.values()) {
+            Order order = partition.get(orderId);
+            if (order != null) return order;
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        int total = 0;
+        for (Partition partition : partitions.values()) {
+            total += partition.size();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of pending orders in a partition.
+     *
+     * @param name the partition name
+     * @return the number of orders, or 0 if the partition is unknown
+     */
+    public int size(String name) {
+        Partition partition = partitions.get(name);
+        return partition == null ? 0 : partition.size();
+    }
+
+    /**
+     * Returns the names of all partitions.
+     *
+     * @return a copy of the partition names
+     */
+    public ArrayList<String> getPartitions() {
+        return ring.getNodes();
+    }
+
+    /**
+     * Closes the connections to all workers. The workers keep the orders they hold.
+     */
+    @Override
+    public void close() {
+        for (Partition partition : partitions.values()) {
+            partition.close();
+        }
+    }
+
+    /**
+     * Iterates over copies of the pending orders, oldest first, as fetched from every worker
+     * when the iterator is created.
+     *
+     * @return an iterator over the orders
+     */
+    @Override
+    public Iterator<Order> iterator() {
+        ArrayList<Ticketed> all = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            all.addAll(partition.snapshot());
+        }
+        all.sort(Comparator.comparingLong(entry -> entry.ticket));
+
+        ArrayList<Order> pending = new ArrayList<>(all.size());
+        for (Ticketed entry : all) {
+            pending.add(entry.order);
+        }
+        return Collections.unmodifiableList(pending).iterator();
+    }
+
+    private Partition ownerOf(Order order) {
+        String name = ring.nodeFor(order.getCustomerContactNumber());
+        if (name == null) {
+            throw new IllegalStateException("No partitions available.");
+        }
+        return partitions.get(name);
+    }
+
+    // The non-empty partition whose oldest order arrived first
+    private Partition oldestPartition() {
+        Partition oldest = null;
+        long oldestTicket = PartitionWorker.EMPTY;
+        for (Partition partition : partitions.values()) {
+            long ticket = partition.headTicket;
+            if (ticket < oldestTicket) {
+                oldest = partition;
+                oldestTicket = ticket;
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * One partition: the connection to its worker, how many orders it holds and the ticket
+     * of its oldest one. Requests are answered in order, so each is sent and read under the
+     * partition's lock.
+     */
+    private static final class Partition {
+        private final String name;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private int size;
+        private volatile long headTicket = PartitionWorker.EMPTY;
+
+        private Partition(String name, Socket socket) throws IOException {
+            this.name = name;
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private synchronized void add(long ticket, Order order) {
+            ArrayList<Ticketed> single = new ArrayList<>(1);
+            single.add(new Ticketed(ticket, order));
+            addBatch(single);
+        }
+
+        // Writes up to MAX_BATCH adds, flushes once and then reads their replies, so neither
+        // side fills its socket buffer while the other is still writing
+        private synchronized void addBatch(ArrayList<Ticketed> batch) {
+            long rejected = -1;
+            try {
+                for (int from = 0; from < batch.size(); from += MAX_BATCH) {
+                    int to = Math.min(batch.size(), from + MAX_BATCH);
+                    for (int i = from; i < to; i++) {
+                        Ticketed entry = batch.get(i);
+                        out.writeByte(PartitionWorker.ADD);
+                        out.writeLong(entry.ticket);
+                        byte[] payload = encode(entry.order);
+                        out.writeInt(payload.length);
+                        out.write(payload);
+                    }
+                    out.flush();
+                    for (int i = from; i < to; i++) {
+                        if (in.readBoolean()) size++;
+                        else rejected = batch.get(i).order.getOrderId();
+                        headTicket = in.readLong();
+                    }
+                }
+            } catch (IOException e) {
+                throw lost(e);
+            }
+            if (rejected >= 0) {
+                throw new IllegalArgumentException("Order " + rejected + " is already queued.");
+            }
+        }
+
+        private synchronized Order poll() {
+            try {
+                out.writeByte(PartitionWorker.POLL);
+                out.flush();
+                Order head = readOrder();
+                if (head != null) size--;
+                headTicket = in.readLong();
+                return head;
+            } catch (IOException e) {
+                throw lost(e);
+            }
+        }
+
+        private synchronized Order peek() {
+            try {
+                out.writeByte(PartitionWorker.PEEK);
+                out.flush();
+                return readOrder();
+            } catch (IOException e) {
+                throw lost(e);
+            }
+        }
+
+        private synchronized Order cancel(long orderId) {
+            try {
+                out.writeByte(PartitionWorker.CANCEL);
+                out.writeLong(orderId);
+                out.flush();
+                Order cancelled = readOrder();
+                if (cancelled != null) size--;
+                headTicket = in.readLong();
+                return cancelled;
+            } catch (IOException e) {
+                throw lost(e);
+            }
+        }
+
+        private synchronized Order get(long orderId) {
+            try {
+                out.writeByte(PartitionWorker.GET);
+                out.writeLong(orderId);
+                out.flush();
+                return readOrder();
+            } catch (IOException e) {
+                throw lost(e);
+            }
+        }
+
+        // All the partition's orders with their tickets, oldest first
+        private synchronized ArrayList<Ticketed> snapshot() {
+            try {
+                out.writeByte(PartitionWorker.SNAPSHOT);
+                out.flush();
+                int count = in.readInt();
+                ArrayList<Ticketed> entries = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    long ticket = in.readLong();
+                    entries.add(new Ticketed(ticket, readOrder()));
+                }
+                return entries;
+            } catch (IOException e) {
+                throw lost(e);
+            }
+        }
+
+        private synchronized void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+
+        private Order readOrder() throws IOException {
+            int length = in.readInt();
+            if (length == 0) return null;
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            try {
+                return OrderCodec.decode(ByteBuffer.wrap(payload));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt order from worker", e);
+            }
+        }
+
+        private static byte[] encode(Order order) {
+            byte[] payload = new byte[OrderCodec.encodedLength(order)];
+            OrderCodec.encode(order, ByteBuffer.wrap(payload));
+            return payload;
+        }
+
+        private IllegalStateException lost(IOException e) {
+            return new IllegalStateException("Lost connection to partition " + name + ".", e);
+        }
+    }
+
+    /**
+     * An order with the arrival ticket that fixes its place in the delivery order.
+     */
+    private static final class Ticketed {
+        private final long ticket;
+        private final Order order;
+
+        private Ticketed(long ticket, Order order) {
+            this.ticket = ticket;
+            this.order = order;
+        }
+    }
+}
@@ -4,92 +4,118 @@
  * meal type (VEGAN, VEGETARIAN, or MEAT).
   * This class extends the abstract FoodItem class and implements the FreeInterface
  * to support promotional logic such as "Buy 2 Get 1 Free".
+ * The topping is the pasta's option in FoodItemRegistry, the bit of its PastaTopping ordinal.
  * Author: Nashmia Shakeel
  * Version: 1.0
  */
 
-import java.util.HashMap;
-
 public class Pasta extends FoodItem {
 
     // Fields
     private PastaTopping toppingsOnPasta;
 
-    private static final HashMap<PastaTopping, Double> TOPPING_PRICES = new HashMap<>();
-
-
-    static {
-        TOPPING_PRICES.put(PastaTopping.BOLOGNESE, 5.20);
-        TOPPING_PRICES.put(PastaTopping.MARINARA, 6.80);
-        TOPPING_PRICES.put(PastaTopping.PRIMAVERA, 5.20);
-        TOPPING_PRICES.put(PastaTopping.TOMATO, 4.00);
-    }
-
     /**
      * Constructs a Pasta item with a specific topping.
      *
      * @param topping The topping to add to the pasta
      */
     public Pasta(PastaTopping topping) {
+        super(FoodItemRegistry.PASTA, topping == null ? 0 : 1 << topping.ordinal());
         this.toppingsOnPasta = topping;
-        calculatePrice();
-        fixFoodType();
     }
 
     /**
      * Constructs a plain Pasta item with no topping (default: VEGAN).
      */
     public Pasta() {
-        this.toppingsOnPasta = null;
-        calculatePrice();
-        fixFoodType();
+        this(null);
+    }
+
+    /**
+     * Returns the topping on this pasta.
+     *
+     * @return the topping, or null if the pasta has none
+     */
+    public PastaTopping getTopping() {
+        return toppingsOnPasta;
     }
 
     /**
-     * Calculates the total price of the pasta by adding topping price
-     * to the base price.
+     * Returns the topping as its PastaTopping ordinal + 1, or 0 for no topping.
+     *
+     * @return the topping code
      */
     @Override
-    public void calculatePrice() {
-        double totalPrice = getBasePrice();
+    public int getOptionBits() {
+        return toppingsOnPasta == null ? 0 : toppingsOnPasta.ordinal() + 1;
+    }
 
-        if (toppingsOnPasta != null) {
-            Double costOfTopping = TOPPING_PRICES.get(toppingsOnPasta);
-            if (costOfTopping != null) {
-                totalPrice = totalPrice + costOfTopping;
-            }
-        }
+    /**
+     * Builds a pasta from the code returned by {@link #getOptionBits()}.
+     *
+     * @param bits the topping code
+     * @return the pasta
+     */
+    static Pasta fromOptionBits(int bits) {
+        return bits == 0 ? new Pasta() : new Pasta(PastaTopping.values()[bits - 1]);
+    }
 
-        setPrice(totalPrice);
+    /**
+     * Returns the starting price of each topping, indexed by PastaTopping ordinal,
+     * for the pasta's menu in FoodItemRegistry.
+     *
+     * @return the topping prices
+     */
+    static double[] toppingPrices() {
+        double[] prices = new double[PastaTopping.values().length];
+        prices[PastaTopping.BOLOGNESE.ordinal()] = 5.20;
+        prices[PastaTopping.MARINARA.ordinal()] = 6.80;
+        prices[PastaTopping.PRIMAVERA.ordinal()] = 5.20;
+        prices[PastaTopping.TOMATO.ordinal()] = 4.00;
+        return prices;
     }
 
     /**
-     * Determines the meal type based on the topping selected.
-     * - VEGAN: No topping or TOMATO
+     * Returns the meal type each topping gives a pasta, indexed by PastaTopping ordinal.
+     * - VEGAN: TOMATO, as is a pasta with no topping
      * - MEAT: BOLOGNESE or MARINARA
      * - VEGETARIAN: PRIMAVERA
+     *
+     * @return the topping meal types
      */
-    @Override
-    public void fixFoodType() {
-        if (toppingsOnPasta == null || toppingsOnPasta == PastaTopping.TOMATO) {
-            setMealType(FoodType.VEGAN);
-        } else if (toppingsOnPasta == PastaTopping.BOLOGNESE
-                || toppingsOnPasta == PastaTopping.MARINARA) {
-            setMealType(FoodType.MEAT);
-        } else if (toppingsOnPasta == PastaTopping.PRIMAVERA) {
-            setMealType(FoodType.VEGETARIAN);
+    static FoodType[] toppingFoodTypes() {
+        FoodType[] foodTypes = new FoodType[PastaTopping.values().length];
+        foodTypes[PastaTopping.BOLOGNESE.ordinal()] = FoodType.MEAT;
+        foodTypes[PastaTopping.MARINARA.ordinal()] = FoodType.MEAT;
+        foodTypes[PastaTopping.PRIMAVERA.ordinal()] = FoodType.VEGETARIAN;
+        foodTypes[PastaTopping.TOMATO.ordinal()] = FoodType.VEGAN;
+        return foodTypes;
+    }
+
+    /**
+     * Changes the price of a topping for pastas priced from now on.
+     * Pastas already made keep their price; quote them again to see the difference.
+     *
+     * @param topping the topping to reprice
+     * @param price   the new price of the topping
+     */
+    public static void setToppingPrice(PastaTopping topping, double price) {
+        if (price < 0) {
+            throw new IllegalArgumentException("Topping price cannot be negative.");
         }
+        FoodItemRegistry.setOptionPrice(FoodItemRegistry.PASTA, topping.ordinal(), price);
     }
 
     /**
      * Checks if the customer is eligible for a free pasta item.
      *
      * @param itemCount Number of pasta items purchased
-     * @return 1 if eligible (2 or more pastas), else 0
+     * @return 1 if eligible (the registry threshold, 2 by default), else 0
      */
     @Override
     public int getFreeItemCount(int itemCount) {
-        if (itemCount >= 2) {
+        int threshold = FoodItemRegistry.getPromotionThreshold(getTypeId());
+        if (threshold > 0 && itemCount >= threshold) {
             return 1;
         }
         return 0;
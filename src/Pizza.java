@@ -5,6 +5,8 @@
  * - MEAT: if toppings include ham or seafood
  * - VEGETARIAN: if toppings include cheese but no meat
  * - VEGAN: if no meat or cheese is present
+ * The toppings are the pizza's options in FoodItemRegistry, one bit per PizzaToppings
+ * ordinal, so a repeated topping is charged once.
  * This class extends FoodItem and participates in promotional discounts
  * via the FreeInterface contract.
  * Author: Nashmia Shakeel
@@ -12,33 +14,17 @@
  */
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
 public class Pizza extends FoodItem {
 
 
     private ArrayList<PizzaToppings> toppingsOnPizza;
 
-
-    private static final HashMap<PizzaToppings, Double> TOPPING_PRICES = new HashMap<>();
-
-
-    static {
-        TOPPING_PRICES.put(PizzaToppings.HAM, 2.0);
-        TOPPING_PRICES.put(PizzaToppings.CHEESE, 2.0);
-        TOPPING_PRICES.put(PizzaToppings.MUSHROOMS, 2.0);
-        TOPPING_PRICES.put(PizzaToppings.TOMATO, 2.0);
-        TOPPING_PRICES.put(PizzaToppings.PINEAPPLE, 2.5);
-        TOPPING_PRICES.put(PizzaToppings.SEAFOOD, 3.5);
-    }
-
     /**
      * Constructs a Pizza object with no toppings.
      */
     public Pizza() {
-        this.toppingsOnPizza = new ArrayList<>();
-        calculatePrice();
-        fixFoodType();
+        this(new ArrayList<>());
     }
 
     /**
@@ -47,55 +33,95 @@ public class Pizza extends FoodItem {
      * @param toppings The list of toppings to add
      */
     public Pizza(ArrayList<PizzaToppings> toppings) {
+        super(FoodItemRegistry.PIZZA, toppingBits(toppings));
         this.toppingsOnPizza = toppings;
-        calculatePrice();
-        fixFoodType();
     }
 
     /**
-     * Calculates the total price of the pizza based on base price
-     * and the price of each topping.
+     * Returns the toppings on this pizza.
+     *
+     * @return the list of toppings
      */
-    @Override
-    public void calculatePrice() {
-        double totalPrice = getBasePrice();
+    public ArrayList<PizzaToppings> getToppings() {
+        return toppingsOnPizza;
+    }
 
-        for (PizzaToppings top : toppingsOnPizza) {
-            Double costOfTopping = TOPPING_PRICES.get(top);
-            if (costOfTopping != null) {
-                totalPrice = totalPrice + costOfTopping;
-            }
+    // The toppings as a bitset of PizzaToppings ordinals, which is also what getOptionBits returns
+    private static int toppingBits(ArrayList<PizzaToppings> toppings) {
+        int bits = 0;
+        for (int i = 0; i < toppings.size(); i++) {
+            bits |= 1 << toppings.get(i).ordinal();
         }
+        return bits;
+    }
 
-        setPrice(totalPrice);
+    /**
+     * Builds a pizza from the bits returned by {@link #getOptionBits()}.
+     *
+     * @param bits the topping bits
+     * @return the pizza
+     */
+    static Pizza fromOptionBits(int bits) {
+        PizzaToppings[] all = PizzaToppings.values();
+        ArrayList<PizzaToppings> toppings = new ArrayList<>(Integer.bitCount(bits));
+        for (int rest = bits; rest != 0; rest &= rest - 1) {
+            toppings.add(all[Integer.numberOfTrailingZeros(rest)]);
+        }
+        return new Pizza(toppings);
     }
 
     /**
-     * Determines and sets the meal type of the pizza based on toppings.
-     * - MEAT: contains ham or seafood
-     * - VEGETARIAN: contains cheese (but no meat)
-     * - VEGAN: no cheese or meat
+     * Returns the starting price of each topping, indexed by PizzaToppings ordinal,
+     * for the pizza's menu in FoodItemRegistry.
+     *
+     * @return the topping prices
      */
-    @Override
-    public void fixFoodType() {
-        boolean meatTopping = false;
-        boolean vegetarianTopping = false;
+    static double[] toppingPrices() {
+        double[] prices = new double[PizzaToppings.values().length];
+        prices[PizzaToppings.HAM.ordinal()] = 2.0;
+        prices[PizzaToppings.CHEESE.ordinal()] = 2.0;
+        prices[PizzaToppings.MUSHROOMS.ordinal()] = 2.0;
+        prices[PizzaToppings.TOMATO.ordinal()] = 2.0;
+        prices[PizzaToppings.PINEAPPLE.ordinal()] = 2.5;
+        prices[PizzaToppings.SEAFOOD.ordinal()] = 3.5;
+        return prices;
+    }
 
-        for (PizzaToppings top : toppingsOnPizza) {
+    /**
+     * Returns the meal type each topping gives a pizza, indexed by PizzaToppings ordinal.
+     * - MEAT: ham or seafood
+     * - VEGETARIAN: cheese
+     * - VEGAN: every other topping
+     * A pizza takes the strictest type among its toppings, VEGAN if it has none.
+     *
+     * @return the topping meal types
+     */
+    static FoodType[] toppingFoodTypes() {
+        FoodType[] foodTypes = new FoodType[PizzaToppings.values().length];
+        for (PizzaToppings top : PizzaToppings.values()) {
             if (top == PizzaToppings.HAM || top == PizzaToppings.SEAFOOD) {
-                meatTopping = true;
+                foodTypes[top.ordinal()] = FoodType.MEAT;
             } else if (top == PizzaToppings.CHEESE) {
-                vegetarianTopping = true;
+                foodTypes[top.ordinal()] = FoodType.VEGETARIAN;
+            } else {
+                foodTypes[top.ordinal()] = FoodType.VEGAN;
             }
         }
+        return foodTypes;
+    }
 
-        if (meatTopping) {
-            setMealType(FoodType.MEAT);
-        } else if (vegetarianTopping) {
-            setMealType(FoodType.VEGETARIAN);
-        } else {
-            setMealType(FoodType.VEGAN);
+    /**
+     * Changes the price of a topping for pizzas priced from now on.
+     * Pizzas already made keep their price; quote them again to see the difference.
+     *
+     * @param topping the topping to reprice
+     * @param price   the new price of the topping
+     */
+    public static void setToppingPrice(PizzaToppings topping, double price) {
+        if (price < 0) {
+            throw new IllegalArgumentException("Topping price cannot be negative.");
         }
+        FoodItemRegistry.setOptionPrice(FoodItemRegistry.PIZZA, topping.ordinal(), price);
     }
 
     /**
@@ -123,11 +149,12 @@ public class Pizza extends FoodItem {
      * Determines how many free pizzas a customer gets based on quantity ordered.
      *
      * @param itemCount number of pizzas ordered
-     * @return 1 if eligible (2 or more), otherwise 0
+     * @return 1 if eligible (the registry threshold, 2 by default), otherwise 0
      */
     @Override
     public int getFreeItemCount(int itemCount) {
-        if (itemCount >= 2) {
+        int threshold = FoodItemRegistry.getPromotionThreshold(getTypeId());
+        if (threshold > 0 && itemCount >= threshold) {
             return 1;
         }
         return 0;
@@ -0,0 +1,95 @@
+/**
+ * A price for an order worked out from the current menu, next to what the order is
+ * charged now. Amounts are kept in cents so deltas add up exactly.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class PriceQuote {
+
+    private final long orderId;
+    private final long currentCents;
+    private final long quotedCents;
+    private final boolean promotionsChanged;
+
+    /**
+     * Constructs a quote.
+     *
+     * @param orderId           the order that was quoted
+     * @param currentCents      what the order is charged now, in cents
+     * @param quotedCents       what the order would be charged on the current menu, in cents
+     * @param promotionsChanged whether the order would gain or lose a free item
+     */
+    public PriceQuote(long orderId, long currentCents, long quotedCents, boolean promotionsChanged) {
+        this.orderId = orderId;
+        this.currentCents = currentCents;
+        this.quotedCents = quotedCents;
+        this.promotionsChanged = promotionsChanged;
+    }
+
+    /**
+     * Returns the id of the quoted order.
+     *
+     * @return the order id
+     */
+    public long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Returns what the order is charged now.
+     *
+     * @return the current total in cents
+     */
+    public long getCurrentCents() {
+        return currentCents;
+    }
+
+    /**
+     * Returns what the order would be charged on the current menu.
+     *
+     * @return the quoted total in cents
+     */
+    public long getQuotedCents() {
+        return quotedCents;
+    }
+
+    /**
+     * Returns the change in price, positive if the order would cost more.
+     *
+     * @return the quoted total minus the current total, in cents
+     */
+    public long getDeltaCents() {
+        return quotedCents - currentCents;
+    }
+
+    /**
+     * Returns whether the order would gain or lose a free item under the current rules.
+     *
+     * @return true if the order's promotions would change
+     */
+    public boolean isPromotionsChanged() {
+        return promotionsChanged;
+    }
+
+    /**
+     * Returns whether anything about the order's price would change.
+     *
+     * @return true if the total or the promotions would change
+     */
+    public boolean isChanged() {
+        return quotedCents != currentCents || promotionsChanged;
+    }
+
+    /**
+     * Returns a one-line description of the quote.
+     *
+     * @return the formatted quote
+     */
+    @Override
+    public String toString() {
+        return String.format("Order %d: $%.2f -> $%.2f (%+.2f)%s", orderId,
+                currentCents / 100.0, quotedCents / 100.0, getDeltaCents() / 100.0,
+                promotionsChanged ? ", promotions change" : "");
+    }
+}
@@ -0,0 +1,195 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures what replicating the pending-order queue costs the primary.
+ * Runs the same stream of creates and deliveries three times: without a backup, with an
+ * asynchronous backup and with a synchronous one. The backup is an OrderReplica in its own
+ * JVM on this machine. Each run queues orders and replicates them the way TakeawayDriver
+ * does, timing every operation, sampling the replication lag and measuring how long the
+ * backup takes to catch up after the last operation. The backup's queue is then checked
+ * against the primary's.
+ * Usage: java ReplicationBenchmark [orders]
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class ReplicationBenchmark {
+
+    private static final String HOST = "127.0.0.1";
+    private static final long ACK_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * Runs each mode and prints throughput, latency, lag and catch-up time.
+     * With {@code --backup} as the only argument, runs as the backup process instead.
+     *
+     * @param args optional number of orders, or {@code --backup}
+     * @throws Exception if the backup cannot be started or reached
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 1 && args[0].equals("--backup")) {
+            runBackup();
+            return;
+        }
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        ArrayList<Order> orders = buildOrders(orderCount, new Random(42));
+
+        run("none", orders); // Warm-up
+
+        System.out.println("mode       ops/s   p50 us   p99 us  max lag  catch-up ms  check");
+        boolean allPassed = true;
+        for (String mode : new String[] {"none", "async", "sync"}) {
+            Result result = run(mode, orders);
+            System.out.printf("%-5s %10.0f %8.1f %8.1f %8d %12.1f  %s%n", mode, result.opsPerSecond,
+                    result.p50Nanos / 1e3, result.p99Nanos / 1e3, result.maxLag, result.catchUpMillis,
+                    result.passed ? "ok" : "MISMATCH");
+            allPassed &= result.passed;
+        }
+        if (!allPassed) System.exit(1);
+    }
+
+    // Creates every order and delivers one after every third, replicating as the driver does
+    private static Result run(String mode, ArrayList<Order> orders) throws Exception {
+        Process backup = null;
+        BufferedReader backupOutput = null;
+        OrderReplicator replicator = null;
+        if (!mode.equals("none")) {
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    "ReplicationBenchmark", "--backup");
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            backup = builder.start();
+            backupOutput = new BufferedReader(new InputStreamReader(backup.getInputStream()));
+            String line = backupOutput.readLine();
+            if (line == null || !line.startsWith("listening ")) {
+                backup.destroy();
+                throw new IOException("Backup did not start: " + line);
+            }
+            replicator = new OrderReplicator(HOST, Integer.parseInt(line.substring("listening ".length())),
+                    mode.equals("sync"));
+        }
+
+        try {
+            OrderQueue queue = new OrderQueue();
+            int operations = orders.size() + orders.size() / 3;
+            long[] latencies = new long[operations];
+            long maxLag = 0;
+            long lastSequence = 0;
+            boolean confirmed = true;
+
+            int op = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < orders.size(); i++) {
+                long before = System.nanoTime();
+                long sequence;
+                synchronized (queue) {
+                    queue.add(orders.get(i));
+                    sequence = replicator == null ? 0 : replicator.replicateCreate(orders.get(i));
+                }
+                if (replicator != null) confirmed &= replicator.awaitAck(sequence, ACK_TIMEOUT_MILLIS);
+                latencies[op++] = System.nanoTime() - before;
+                lastSequence = sequence;
+
+                if (i % 3 == 2) {
+                    before = System.nanoTime();
+                    synchronized (queue) {
+                        queue.poll();
+                        sequence = replicator == null ? 0 : replicator.replicateDeliver();
+                    }
+                    if (replicator != null) confirmed &= replicator.awaitAck(sequence, ACK_TIMEOUT_MILLIS);
+                    latencies[op++] = System.nanoTime() - before;
+                    lastSequence = sequence;
+                }
+                if (replicator != null && (i & 1023) == 0) {
+                    maxLag = Math.max(maxLag, lastSequence - replicator.getAckedSequence()); // Queued or sent, not applied
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            // Time until the backup has applied everything the primary did
+            long caughtUp = System.nanoTime();
+            if (replicator != null) {
+                long deadline = System.currentTimeMillis() + 60_000;
+                while (replicator.getAckedSequence() < lastSequence && !replicator.hasFailed()
+                        && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(0, 100_000);
+                }
+                confirmed &= replicator.getAckedSequence() >= lastSequence;
+            }
+            double catchUpMillis = (System.nanoTime() - caughtUp) / 1e6;
+
+            boolean passed = confirmed;
+            if (replicator != null) {
+                replicator.close();
+                String summary = "";
+                String line;
+                while ((line = backupOutput.readLine()) != null) {
+                    if (line.startsWith("pending ")) summary = line;
+                }
+                backup.waitFor();
+                passed &= summary.equals("pending " + queue.size() + " " + PartitionWorker.checksum(queue));
+            }
+
+            Arrays.sort(latencies);
+            return new Result(operations / seconds, latencies[operations / 2],
+                    latencies[(int) (operations * 0.99)], maxLag, catchUpMillis, passed);
+        } finally {
+            if (replicator != null) replicator.close();
+            if (backup != null) backup.destroy();
+        }
+    }
+
+    // Backup process: applies the primary's events, then prints what it holds
+    private static void runBackup() throws IOException {
+        try (OrderReplica replica = new OrderReplica(0)) {
+            System.out.println("listening " + replica.getPort());
+            System.out.flush();
+            replica.run();
+            ArrayList<Order> pending = replica.getPendingOrders();
+            System.out.println("pending " + pending.size() + " " + PartitionWorker.checksum(pending));
+        }
+    }
+
+    // One pizza and one pasta per order, so no promotion messages are printed
+    private static ArrayList<Order> buildOrders(int count, Random random) {
+        PizzaToppings[] pizzaToppings = PizzaToppings.values();
+        PastaTopping[] pastaToppings = PastaTopping.values();
+        ArrayList<Order> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Order order = new Order("Customer " + i, 10_000_000 + random.nextInt(90_000_000), i + " High Street");
+            ArrayList<PizzaToppings> toppings = new ArrayList<>();
+            toppings.add(pizzaToppings[random.nextInt(pizzaToppings.length)]);
+            order.addFoodItem(new Pizza(toppings));
+            order.addFoodItem(new Pasta(pastaToppings[random.nextInt(pastaToppings.length)]));
+            batch.add(order);
+        }
+        return batch;
+    }
+
+    /**
+     * Measurements for one mode.
+     */
+    private static final class Result {
+        private final double opsPerSecond;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long maxLag;
+        private final double catchUpMillis;
+        private final boolean passed;
+
+        private Result(double opsPerSecond, long p50Nanos, long p99Nanos, long maxLag,
+                       double catchUpMillis, boolean passed) {
+            this.opsPerSecond = opsPerSecond;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxLag = maxLag;
+            this.catchUpMillis = catchUpMillis;
+            this.passed = passed;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import java.io.PrintStream;
+
+/**
+ * Results of quoting a batch of orders with OrderRepricer: every quote, plus how many
+ * orders would change and by how much in total.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class RepricingReport {
+
+    private static final int LISTED_CHANGES = 10; // Changed orders printed before the rest are summarised
+
+    private final PriceQuote[] quotes;
+    private final int changedCount;
+    private final long totalDeltaCents;
+    private final int promotionChanges;
+    private final long elapsedNanos;
+
+    RepricingReport(PriceQuote[] quotes, int changedCount, long totalDeltaCents, int promotionChanges, long elapsedNanos) {
+        this.quotes = quotes;
+        this.changedCount = changedCount;
+        this.totalDeltaCents = totalDeltaCents;
+        this.promotionChanges = promotionChanges;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the quotes, in the order the batch was given.
+     *
+     * @return the quotes
+     */
+    public PriceQuote[] getQuotes() {
+        return quotes;
+    }
+
+    /**
+     * Returns the number of orders whose total or promotions would change.
+     *
+     * @return the number of changed orders
+     */
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    /**
+     * Returns the sum of every order's change in price.
+     *
+     * @return the total delta in cents, positive if the batch would cost more
+     */
+    public long getTotalDeltaCents() {
+        return totalDeltaCents;
+    }
+
+    /**
+     * Returns the number of orders that would gain or lose a free item.
+     *
+     * @return the number of promotion changes
+     */
+    public int getPromotionChanges() {
+        return promotionChanges;
+    }
+
+    /**
+     * Returns how long quoting the batch took.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Prints the report, listing the first few changed orders.
+     *
+     * @param out the stream to print to
+     */
+    public void print(PrintStream out) {
+        out.println("===== REPRICING =====");
+        out.printf("Orders quoted:      %d%n", quotes.length);
+        out.printf("Orders changed:     %d%n", changedCount);
+        out.printf("Promotion changes:  %d%n", promotionChanges);
+        out.printf("Total change:       %+.2f%n", totalDeltaCents / 100.0);
+        out.printf("Time:               %.2f ms%n", elapsedNanos / 1e6);
+
+        int listed = 0;
+        for (PriceQuote quote : quotes) {
+            if (listed == LISTED_CHANGES) break;
+            if (quote.isChanged()) {
+                out.println(quote);
+                listed++;
+            }
+        }
+        if (changedCount > listed) out.println("... and " + (changedCount - listed) + " more");
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Order and revenue totals over one window of a RevenueWindow, with the per-minute
+ * rates a dashboard shows. Amounts are in cents.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class RevenueSnapshot {
+
+    private final int minutes;
+    private final long takenAtMillis;
+    private final int orders;
+    private final long revenueCents;
+    private final long[] revenueCentsByType;
+
+    RevenueSnapshot(int minutes, long takenAtMillis, int orders, long revenueCents, long[] revenueCentsByType) {
+        this.minutes = minutes;
+        this.takenAtMillis = takenAtMillis;
+        this.orders = orders;
+        this.revenueCents = revenueCents;
+        this.revenueCentsByType = revenueCentsByType;
+    }
+
+    /**
+     * Returns the length of the window.
+     *
+     * @return the window in minutes
+     */
+    public int getMinutes() {
+        return minutes;
+    }
+
+    /**
+     * Returns when the snapshot was taken.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getTakenAtMillis() {
+        return takenAtMillis;
+    }
+
+    /**
+     * Returns the number of orders placed in the window, net of cancellations.
+     *
+     * @return the order count
+     */
+    public int getOrders() {
+        return orders;
+    }
+
+    /**
+     * Returns the revenue taken in the window, net of cancellations.
+     *
+     * @return the revenue in cents
+     */
+    public long getRevenueCents() {
+        return revenueCents;
+    }
+
+    /**
+     * Returns the revenue from items of one food type, whatever else was in their orders.
+     *
+     * @param foodType the food type
+     * @return the revenue in cents
+     */
+    public long getRevenueCents(FoodType foodType) {
+        return revenueCentsByType[foodType.ordinal()];
+    }
+
+    /**
+     * Returns the average number of orders per minute over the window.
+     *
+     * @return the order rate
+     */
+    public double getOrdersPerMinute() {
+        return (double) orders / minutes;
+    }
+
+    /**
+     * Returns the average revenue per minute from items of one food type.
+     *
+     * @param foodType the food type
+     * @return the revenue rate in cents per minute
+     */
+    public double getRevenuePerMinute(FoodType foodType) {
+        return (double) getRevenueCents(foodType) / minutes;
+    }
+
+    /**
+     * Returns the average value of an order in the window.
+     *
+     * @return the average in cents, or 0 if there were no orders
+     */
+    public double getAverageOrderCents() {
+        return orders <= 0 ? 0 : (double) revenueCents / orders;
+    }
+
+    /**
+     * Returns a one-line summary of the window.
+     *
+     * @return the formatted summary
+     */
+    @Override
+    public String toString() {
+        StringBuilder line = new StringBuilder(String.format("Last %2d min: %5.2f orders/min, avg $%.2f",
+                minutes, getOrdersPerMinute(), getAverageOrderCents() / 100));
+        for (FoodType type : FoodType.values()) {
+            line.append(String.format(", %s $%.2f/min", type, getRevenuePerMinute(type) / 100));
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,158 @@
+import java.util.Arrays;
+
+/**
+ * Rolling per-minute order and revenue counters for the last hour or so, fed by the
+ * OrderEventBus. Each minute has one bucket in a ring of primitive arrays; recording an
+ * order touches only the bucket of the minute it was taken in, and a bucket is cleared
+ * when the ring comes round to it again, so no Order is ever kept. A cancellation is taken
+ * off the minute the order was taken in, not the minute it was cancelled in, so the order
+ * counts and revenue of a minute never go below what was booked in it. Events for orders
+ * taken before the oldest minute the ring holds are ignored. Revenue by FoodType is split
+ * item by item, so a vegan pasta in an order with a ham pizza still counts as vegan
+ * revenue. Window queries add up the buckets they cover.
+ * The window only knows what the bus delivers to it. Register it with
+ * OverflowPolicy.block(): with a lossy policy a missed creation is revenue that is never
+ * booked, and if that order is later cancelled its cancellation takes it off anyway.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class RevenueWindow implements OrderEventHandler {
+
+    private static final long MILLIS_PER_MINUTE = 60_000;
+    private static final FoodType[] TYPES = FoodType.values();
+    private static final int FOOD_TYPES = TYPES.length;
+
+    private final int bucketCount;
+    private final long[] bucketMinute;    // Minute each bucket currently holds, -1 if never used
+    private final int[] orders;
+    private final long[] revenueCents;
+    private final long[] revenueCentsByType; // bucketCount rows of FOOD_TYPES columns
+    private final long[] eventCentsByType = new long[FOOD_TYPES]; // Scratch for the event being handled
+    private long latestMinute = Long.MIN_VALUE; // Newest minute recorded so far
+
+    /**
+     * Constructs a window.
+     *
+     * @param maxWindowMinutes the longest window that will be queried
+     */
+    public RevenueWindow(int maxWindowMinutes) {
+        if (maxWindowMinutes <= 0) {
+            throw new IllegalArgumentException("Window must be at least one minute.");
+        }
+        this.bucketCount = maxWindowMinutes;
+        this.bucketMinute = new long[bucketCount];
+        this.orders = new int[bucketCount];
+        this.revenueCents = new long[bucketCount];
+        this.revenueCentsByType = new long[bucketCount * FOOD_TYPES];
+        Arrays.fill(bucketMinute, -1);
+    }
+
+    /**
+     * Counts created orders and takes cancelled ones back off, in the minute each was taken.
+     *
+     * @param event      the order event
+     * @param sequence   the event's position in the bus
+     * @param endOfBatch true if no further events are available yet
+     */
+    @Override
+    public void onEvent(OrderEvent event, long sequence, boolean endOfBatch) {
+        int orderDelta;
+        if (event.getType() == OrderEvent.ORDER_CREATED) orderDelta = 1;
+        else if (event.getType() == OrderEvent.ORDER_CANCELLED) orderDelta = -1;
+        else return;
+
+        // Only the handler thread calls this, so the scratch array is never shared
+        for (int t = 0; t < FOOD_TYPES; t++) {
+            eventCentsByType[t] = event.getCents(TYPES[t]);
+        }
+        record(event.getCreatedAtMillis(), orderDelta, event.getTotalCents(), eventCentsByType);
+    }
+
+    /**
+     * Adds an order to the bucket for the minute it was taken, or takes a cancelled one off.
+     * Orders taken before the oldest minute the ring holds are ignored.
+     *
+     * @param createdAtMillis when the order was taken, in milliseconds since the epoch
+     * @param orderDelta      1 for a new order, -1 for a cancelled one
+     * @param cents           the order total
+     * @param centsByFoodType the order total split by the food type of each item, indexed by ordinal
+     * @return true if the order fell inside the ring and was recorded
+     */
+    public synchronized boolean record(long createdAtMillis, int orderDelta, long cents, long[] centsByFoodType) {
+        long minute = createdAtMillis / MILLIS_PER_MINUTE;
+        if (latestMinute != Long.MIN_VALUE && minute <= latestMinute - bucketCount) {
+            return false; // Its bucket now holds a newer minute
+        }
+        latestMinute = Math.max(latestMinute, minute);
+
+        int bucket = bucketFor(minute);
+        orders[bucket] += orderDelta;
+        revenueCents[bucket] += orderDelta * cents;
+        for (int t = 0; t < FOOD_TYPES; t++) {
+            revenueCentsByType[bucket * FOOD_TYPES + t] += orderDelta * centsByFoodType[t];
+        }
+        return true;
+    }
+
+    /**
+     * Totals the most recent minutes, including the current partial minute.
+     *
+     * @param minutes   the window length, at most the length given at construction
+     * @param nowMillis the current time, in milliseconds since the epoch
+     * @return the totals for the window
+     */
+    public synchronized RevenueSnapshot query(int minutes, long nowMillis) {
+        if (minutes <= 0 || minutes > bucketCount) {
+            throw new IllegalArgumentException("Window must be between 1 and " + bucketCount + " minutes.");
+        }
+
+        long nowMinute = nowMillis / MILLIS_PER_MINUTE;
+        int orderTotal = 0;
+        long revenueTotal = 0;
+        long[] byType = new long[FOOD_TYPES];
+
+        for (long minute = nowMinute - minutes + 1; minute <= nowMinute; minute++) {
+            int bucket = (int) Math.floorMod(minute, (long) bucketCount);
+            if (bucketMinute[bucket] != minute) continue; // Nothing recorded in that minute
+            orderTotal += orders[bucket];
+            revenueTotal += revenueCents[bucket];
+            for (int t = 0; t < FOOD_TYPES; t++) {
+                byType[t] += revenueCentsByType[bucket * FOOD_TYPES + t];
+            }
+        }
+        return new RevenueSnapshot(minutes, nowMillis, orderTotal, revenueTotal, byType);
+    }
+
+    /**
+     * Totals the last 5, 15 and 60 minutes (or as many as the window holds) for a dashboard.
+     *
+     * @return the snapshots, shortest window first
+     */
+    public RevenueSnapshot[] snapshot() {
+        long now = System.currentTimeMillis();
+        int[] windows = {5, 15, 60};
+        int count = 0;
+        while (count < windows.length && windows[count] <= bucketCount) count++;
+
+        RevenueSnapshot[] snapshots = new RevenueSnapshot[count];
+        for (int i = 0; i < count; i++) {
+            snapshots[i] = query(windows[i], now);
+        }
+        return snapshots;
+    }
+
+    // Finds the bucket for a minute, clearing it if it last held an older minute
+    private int bucketFor(long minute) {
+        int bucket = (int) Math.floorMod(minute, (long) bucketCount);
+        if (bucketMinute[bucket] != minute) {
+            bucketMinute[bucket] = minute;
+            orders[bucket] = 0;
+            revenueCents[bucket] = 0;
+            for (int t = 0; t < FOOD_TYPES; t++) {
+                revenueCentsByType[bucket * FOOD_TYPES + t] = 0;
+            }
+        }
+        return bucket;
+    }
+}
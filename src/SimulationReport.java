@@ -0,0 +1,151 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Results of a KitchenQueueSimulator run: throughput, queue depth over time and
+ * order latency (arrival to leaving the kitchen) percentiles, all in simulated minutes.
+ * Reports from runs with the same seed can be compared directly.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public class SimulationReport {
+
+    private int arrivals;
+    private int rejected;
+    private int completed;
+    private double revenue;
+    private double lastCompletionMinute;
+    private long wallNanos;
+
+    private double[] latencies = new double[1024];
+    private int[] maxQueueDepthByMinute;
+    private double[] sortedLatencies;
+
+    /**
+     * Constructs an empty report.
+     *
+     * @param expectedMinutes the expected length of the run, used to size the depth samples
+     */
+    SimulationReport(int expectedMinutes) {
+        this.maxQueueDepthByMinute = new int[Math.max(1, expectedMinutes + 1)];
+    }
+
+    void recordArrival(Order order) {
+        arrivals++;
+        revenue += order.getTotalCost();
+    }
+
+    void recordRejection() {
+        arrivals++;
+        rejected++;
+    }
+
+    void recordCompletion(double minute, double latencyMinutes) {
+        if (completed == latencies.length) latencies = Arrays.copyOf(latencies, completed * 2);
+        latencies[completed++] = latencyMinutes;
+        lastCompletionMinute = minute;
+    }
+
+    void sampleQueueDepth(double minute, int depth) {
+        int index = (int) minute;
+        if (index >= maxQueueDepthByMinute.length) {
+            maxQueueDepthByMinute = Arrays.copyOf(maxQueueDepthByMinute, Math.max(index + 1, maxQueueDepthByMinute.length * 2));
+        }
+        maxQueueDepthByMinute[index] = Math.max(maxQueueDepthByMinute[index], depth);
+    }
+
+    void finish(long wallNanos) {
+        this.wallNanos = wallNanos;
+        int minutes = (int) lastCompletionMinute + 1;
+        maxQueueDepthByMinute = Arrays.copyOf(maxQueueDepthByMinute, Math.min(maxQueueDepthByMinute.length, minutes));
+        sortedLatencies = Arrays.copyOf(latencies, completed);
+        Arrays.sort(sortedLatencies);
+    }
+
+    /**
+     * Returns the number of orders placed.
+     *
+     * @return the number of arrivals
+     */
+    public int getArrivals() {
+        return arrivals;
+    }
+
+    /**
+     * Returns the number of orders turned away by admission control.
+     *
+     * @return the number of rejected orders
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Returns the number of orders the kitchen finished.
+     *
+     * @return the number of completed orders
+     */
+    public int getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Returns the average number of orders completed per simulated minute.
+     *
+     * @return the throughput in orders per minute
+     */
+    public double getThroughputPerMinute() {
+        return lastCompletionMinute == 0 ? 0 : completed / lastCompletionMinute;
+    }
+
+    /**
+     * Returns a latency percentile.
+     *
+     * @param fraction the percentile as a fraction, e.g. 0.99
+     * @return the latency in simulated minutes, or 0 if nothing completed
+     */
+    public double getLatencyPercentile(double fraction) {
+        if (sortedLatencies.length == 0) return 0;
+        int index = (int) Math.ceil(fraction * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, Math.min(sortedLatencies.length - 1, index))];
+    }
+
+    /**
+     * Returns the largest queue depth seen in each simulated minute.
+     *
+     * @return a copy of the per-minute maximum depths
+     */
+    public int[] getQueueDepthByMinute() {
+        return maxQueueDepthByMinute.clone();
+    }
+
+    /**
+     * Prints the report.
+     *
+     * @param out the stream to print to
+     */
+    public void print(PrintStream out) {
+        out.println("===== PEAK HOUR SIMULATION =====");
+        out.printf("Orders placed:      %d%n", arrivals);
+        out.printf("Orders turned away: %d%n", rejected);
+        out.printf("Orders completed:   %d%n", completed);
+        out.printf("Revenue:            $%.2f%n", revenue);
+        out.printf("Throughput:         %.2f orders/min over %.0f min%n", getThroughputPerMinute(), lastCompletionMinute);
+        out.printf("Latency (min):      p50 %.1f  p90 %.1f  p99 %.1f  max %.1f%n",
+                getLatencyPercentile(0.50), getLatencyPercentile(0.90),
+                getLatencyPercentile(0.99), getLatencyPercentile(1.0));
+        out.printf("Wall time:          %.1f ms (%.0fx real time)%n", wallNanos / 1e6,
+                lastCompletionMinute * 60e9 / Math.max(1, wallNanos));
+
+        out.println();
+        out.println("Max queue depth per 10 minutes:");
+        for (int start = 0; start < maxQueueDepthByMinute.length; start += 10) {
+            int max = 0;
+            for (int m = start; m < Math.min(start + 10, maxQueueDepthByMinute.length); m++) {
+                max = Math.max(max, maxQueueDepthByMinute[m]);
+            }
+            out.printf("%4d min %5d %s%n", start, max, "#".repeat(Math.min(max, 60)));
+        }
+    }
+}
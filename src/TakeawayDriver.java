@@ -1,5 +1,10 @@
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import jdk.jfr.EventType;
 
 /**
  * The TakeawayDriver class serves as the main controller for the takeaway order management system.
@@ -11,27 +16,63 @@ import java.util.Scanner;
 public class TakeawayDriver {
 
     private static final Scanner scanner = new Scanner(System.in); // Used to read user input from the console
-    private static final ArrayList<Order> orders = new ArrayList<>(); // List to store customer orders
+    private static OrderBook orders = new OrderQueue(); // FIFO queue of customer orders, chosen once at startup
+    private static final OrderDedupeCache submittedKeys =
+            new OrderDedupeCache(10_000, 15 * 60 * 1000L, 16); // Remembers recent idempotency keys
+    private static final ArrayList<OrderReplicator> backups = new ArrayList<>(); // Hot standbys receiving queue events
+    private static final long BACKUP_ACK_TIMEOUT_MILLIS = 1000; // Longest wait for a synchronous backup
+    private static final Set<OrderReplicator> downBackups = ConcurrentHashMap.newKeySet(); // Backups given up on
+    private static final EventType QUEUE_EVENT_TYPE = EventType.getEventType(OrderQueueEvent.class);
+    private static final HashMap<Long, Long> queuedAtNanos = new HashMap<>(); // Enqueue times, kept only while recording
+    private static final OrderEventBus events =
+            new OrderEventBus(4096, WaitStrategy.SLEEPING); // Feeds displays, notifications and exports
+    private static final RevenueWindow revenue = new RevenueWindow(60); // Last hour of orders and revenue
+    private static final OrderSearchIndex searchIndex = new OrderSearchIndex(1000); // Pending and last 1000 delivered
+    private static final OrderEtaService etas =
+            new OrderEtaService(2.0, 20); // Two cooks' worth of work per minute until measured, 20 min drive
+    private static final OrderRepricer repricer = new OrderRepricer(); // Quotes pending orders after menu changes
+    private static final AdmissionController admission =
+            new AdmissionController(45 * 60 * 1000L, 2 * 60 * 1000L); // 45 min target wait, 2 min grace
 
     /**
      * Entry point of the program. Displays the main menu and handles user choices in a loop.
+     * Options:
+     * --backup PORT               run as a hot standby until the primary fails, then take over
+     * --replicate-to HOST:PORT    stream queue events to a backup (may be repeated)
+     * --sync                      wait for backups to confirm each event
+     * --off-heap                  keep pending orders outside the Java heap
+     * --partition HOST:PORT       shard pending orders across PartitionWorker processes (may be repeated)
      */
     public static void main(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--off-heap")) orders = new OffHeapOrderBook();
+        }
+        if (!configureReplication(args)) return;
+        events.addHandler("revenue-window", revenue, OverflowPolicy.block()); // Revenue must not lose orders
+
         while (true) {
             // Display the main menu
             System.out.println("\n===== TAKEAWAY ORDER SYSTEM =====");
             System.out.println("1. Enter new customer order");
             System.out.println("2. Deliver order");
             System.out.println("3. Show all orders");
-            System.out.println("4. Exit");
+            System.out.println("4. Cancel order");
+            System.out.println("5. Show sales summary");
+            System.out.println("6. Search orders");
+            System.out.println("7. Check order ETA");
+            System.out.println("8. Exit");
             System.out.print("Choose option: ");
 
             int choice = readChoice(); // Read user's menu choice
 
-            if (choice == 1) orders.add(createOrder()); // Create and add a new order
+            if (choice == 1) enterOrder();               // Create and add a new order
             else if (choice == 2) deliverOrder();       // Deliver the oldest order
             else if (choice == 3) printAllOrders();     // Display all current orders
-            else if (choice == 4) {
+            else if (choice == 4) cancelOrder();        // Cancel an order by id
+            else if (choice == 5) printSalesSummary();  // Show recent order and revenue rates
+            else if (choice == 6) searchOrders();       // Find orders by name or street
+            else if (choice == 7) checkEta();           // Estimate when an order arrives
+            else if (choice == 8) {
                 System.out.println("Goodbye!");
                 break; // Exit the program
             } else {
@@ -40,6 +81,53 @@ public class TakeawayDriver {
         }
     }
 
+    /**
+     * Sets up replication and partitions from the command-line options.
+     * As a backup this blocks until the primary fails and then loads its pending orders.
+     *
+     * @param args The command-line options.
+     * @return True if the program should continue to the main menu.
+     */
+    private static boolean configureReplication(String[] args) {
+        boolean synchronous = false;
+        for (String arg : args) {
+            if (arg.equals("--sync")) synchronous = true;
+        }
+
+        try {
+            // Partitions first, so orders taken over from a failed primary are sharded too
+            for (int i = 0; i + 1 < args.length; i++) {
+                if (args[i].equals("--partition")) {
+                    String[] hostAndPort = args[i + 1].split(":");
+                    if (!(orders instanceof PartitionedOrderStore)) orders = new PartitionedOrderStore(64);
+                    ((PartitionedOrderStore) orders).addPartition(hostAndPort[0], Integer.parseInt(hostAndPort[1]));
+                }
+            }
+
+            for (int i = 0; i + 1 < args.length; i++) {
+                if (args[i].equals("--backup")) {
+                    try (OrderReplica replica = new OrderReplica(Integer.parseInt(args[i + 1]))) {
+                        System.out.println("Running as backup on port " + replica.getPort() + ".");
+                        replica.run();
+                        orders.addAll(replica.getPendingOrders());
+                        for (Order o : orders) {
+                            searchIndex.add(o);
+                            etas.add(o);
+                        }
+                        System.out.println("Primary lost. Took over " + orders.size() + " pending orders.");
+                    }
+                } else if (args[i].equals("--replicate-to")) {
+                    String[] hostAndPort = args[i + 1].split(":");
+                    backups.add(new OrderReplicator(hostAndPort[0], Integer.parseInt(hostAndPort[1]), synchronous));
+                }
+            }
+        } catch (IOException | IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Could not set up replication: " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Reads and returns a valid integer menu choice from the user.
      *
@@ -116,6 +204,163 @@ public class TakeawayDriver {
         return order;
     }
 
+    /**
+     * Creates an order from console input and queues it. Orders passed on from the phone or
+     * web system can be given their reference, which is used as the idempotency key, so an
+     * order entered twice is only queued once. If the kitchen is over capacity, the estimated
+     * wait is shown and the order is only queued if the customer accepts it.
+     */
+    private static void enterOrder() {
+        System.out.print("Order reference (press Enter if none): ");
+        String reference = scanner.nextLine().trim();
+        Order order = createOrder();
+
+        OrderSubmission submission = reference.isEmpty() ? submitOrder(order) : submitOrder(reference, order);
+        if (submission.isDuplicate()) {
+            System.out.println("Reference " + reference + " was already entered as order "
+                    + submission.getOrder().getOrderId() + ". Nothing new was queued.");
+            return;
+        }
+        if (submission.isAccepted()) {
+            printEta(order.getOrderId());
+            return;
+        }
+
+        System.out.println("The kitchen is at capacity. Estimated wait: " + submission.getEstimatedWaitMinutes() + " minutes.");
+        System.out.println("Accept the order anyway? Type 'y' for yes or 'n' for no:");
+
+        if (isYes(scanner.nextLine())) {
+            // The key is only remembered for accepted orders, so record it now
+            Order original = reference.isEmpty() ? null : submittedKeys.putIfAbsent(reference, order);
+            if (original != null) {
+                System.out.println("Reference " + reference + " was entered meanwhile as order "
+                        + original.getOrderId() + ". Nothing new was queued.");
+                return;
+            }
+            enqueue(order);
+            printEta(order.getOrderId());
+        } else {
+            System.out.println("Order not accepted.");
+        }
+    }
+
+    /**
+     * Adds a new order to the delivery queue, unless the kitchen has fallen so far behind
+     * that the order's estimated wait has stayed over target (see AdmissionController).
+     *
+     * @param order The order to queue.
+     * @return Whether the order was queued, with the estimated wait it was decided on.
+     */
+    public static OrderSubmission submitOrder(Order order) {
+        OrderValidationEvent event = new OrderValidationEvent();
+        event.begin();
+        OrderSubmission submission = admit(order);
+        commitValidationEvent(event, order.getOrderId(), submission.isAccepted());
+
+        if (submission.isAccepted()) enqueue(order);
+        return submission;
+    }
+
+    /**
+     * Asks admission control whether the kitchen can take the order now.
+     *
+     * @param order The order being submitted.
+     * @return The decision and the estimated wait behind the current queue.
+     */
+    private static OrderSubmission admit(Order order) {
+        synchronized (orders) {
+            int depth = orders.size();
+            boolean accepted = admission.admit(depth, System.nanoTime());
+            return new OrderSubmission(order, accepted, false, admission.estimateWaitNanos(depth));
+        }
+    }
+
+    /**
+     * Ends a validation event started before an order's submission checks, if it is being recorded.
+     *
+     * @param event    The event begun before the checks.
+     * @param orderId  The id of the order checked; for a duplicate, the original order.
+     * @param accepted Whether the order passed the checks.
+     */
+    private static void commitValidationEvent(OrderValidationEvent event, long orderId, boolean accepted) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.orderId = orderId;
+            event.accepted = accepted;
+            event.commit();
+        }
+    }
+
+    /**
+     * Adds an order to the delivery queue and replicates it, without admission control.
+     *
+     * @param order The order to queue.
+     */
+    private static void enqueue(Order order) {
+        long[] sequences = new long[backups.size()];
+        synchronized (orders) {
+            orders.add(order);
+            if (QUEUE_EVENT_TYPE.isEnabled()) queuedAtNanos.put(order.getOrderId(), System.nanoTime());
+            for (int i = 0; i < sequences.length; i++) {
+                sequences[i] = backups.get(i).replicateCreate(order);
+            }
+            events.publish(OrderEvent.ORDER_CREATED, order);
+            searchIndex.add(order);
+            etas.add(order);
+        }
+        awaitBackups(sequences);
+    }
+
+    /**
+     * Waits for synchronous backups to confirm the given events. A backup that fails to
+     * confirm is marked down: it is reported once and closed, so later updates are not sent
+     * to it and don't wait for it.
+     *
+     * @param sequences The sequence number of the event sent to each backup, in backup order.
+     */
+    private static void awaitBackups(long[] sequences) {
+        for (int i = 0; i < sequences.length; i++) {
+            OrderReplicator backup = backups.get(i);
+            if (backup.awaitAck(sequences[i], BACKUP_ACK_TIMEOUT_MILLIS)) continue;
+            if (downBackups.add(backup)) {
+                backup.close();
+                System.out.println("Warning: backup " + (i + 1) + " did not confirm the update and is marked down."
+                        + " No further updates are sent to it.");
+            }
+        }
+    }
+
+    /**
+     * Adds an order to the delivery queue unless an order with the same idempotency key
+     * was already submitted recently. Retried submissions from tablets or phones get the
+     * original order back and nothing new is queued. The key is only remembered once
+     * admission control has accepted the order, so a retry is never handed back an order
+     * that is then turned away, and a rejected submission can be retried with the same key.
+     *
+     * @param idempotencyKey Key identifying the submission, reused by the client on retry.
+     * @param order          The order built for this submission.
+     * @return The outcome: the original order if the key was seen before, otherwise whether
+     *         {@code order} was queued, with the estimated wait if it was turned away.
+     */
+    public static OrderSubmission submitOrder(String idempotencyKey, Order order) {
+        OrderValidationEvent event = new OrderValidationEvent();
+        event.begin();
+        Order original = submittedKeys.get(idempotencyKey);
+        OrderSubmission submission = null;
+        if (original == null) {
+            submission = admit(order);
+            if (submission.isAccepted()) original = submittedKeys.putIfAbsent(idempotencyKey, order);
+        }
+        if (original != null) {
+            // A retry, or a concurrent submission that published the key first
+            submission = new OrderSubmission(original, true, true, 0);
+        }
+        commitValidationEvent(event, submission.getOrder().getOrderId(), submission.isAccepted() && !submission.isDuplicate());
+
+        if (submission.isAccepted() && !submission.isDuplicate()) enqueue(order);
+        return submission;
+    }
+
     /**
      * Reads and validates input based on minimum length and digit-only constraint.
      *
@@ -226,24 +471,220 @@ public class TakeawayDriver {
      * Uses FIFO strategy.
      */
     private static void deliverOrder() {
-        if (orders.isEmpty()) {
+        Order delivered = null;
+        long[] sequences = new long[backups.size()];
+        synchronized (orders) {
+            if (!orders.isEmpty()) {
+                delivered = orders.poll();
+                admission.recordDelivery(System.nanoTime(), orders.size());
+                recordQueueTime(delivered, false);
+                for (int i = 0; i < sequences.length; i++) {
+                    sequences[i] = backups.get(i).replicateDeliver();
+                }
+                events.publish(OrderEvent.ORDER_DELIVERED, delivered);
+                searchIndex.markDelivered(delivered.getOrderId());
+                etas.recordDelivery(delivered.getOrderId(), System.currentTimeMillis(), orders.size());
+            }
+        }
+        if (delivered != null) awaitBackups(sequences);
+
+        if (delivered == null) {
             System.out.println("No orders to deliver.");
         } else {
-            System.out.println("Delivered:\n" + orders.removeFirst());
+            System.out.println("Delivered:\n" + delivered);
         }
     }
 
     /**
-     * Prints all current orders in the order list.
+     * Prompts for an order id and cancels that order if it is still pending.
      */
-    private static void printAllOrders() {
-        if (orders.isEmpty()) {
-            System.out.println("No current orders.");
+    private static void cancelOrder() {
+        String input = readValidatedInput("Order ID to cancel: ", 1, true);
+        Order cancelled = cancelOrder(Long.parseLong(input));
+
+        if (cancelled == null) {
+            System.out.println("No pending order with that ID.");
         } else {
-            System.out.println("Orders:");
+            System.out.println("Cancelled:\n" + cancelled);
+        }
+    }
+
+    /**
+     * Cancels a pending order wherever it is in the queue.
+     *
+     * @param orderId The id of the order to cancel.
+     * @return The cancelled order, or null if no pending order has that id.
+     */
+    public static Order cancelOrder(long orderId) {
+        Order cancelled;
+        long[] sequences = new long[backups.size()];
+        synchronized (orders) {
+            cancelled = orders.cancel(orderId);
+            if (cancelled != null) {
+                recordQueueTime(cancelled, true);
+                for (int i = 0; i < sequences.length; i++) {
+                    sequences[i] = backups.get(i).replicateCancel(orderId);
+                }
+                events.publish(OrderEvent.ORDER_CANCELLED, cancelled);
+                searchIndex.remove(orderId);
+                etas.remove(orderId);
+            }
+        }
+        if (cancelled != null) awaitBackups(sequences);
+        return cancelled;
+    }
+
+    /**
+     * Records how long an order waited in the queue, if the flight recorder was recording
+     * queue events when it was added. Must be called while holding the orders lock.
+     *
+     * @param order     The order leaving the queue.
+     * @param cancelled Whether the order was cancelled rather than delivered.
+     */
+    private static void recordQueueTime(Order order, boolean cancelled) {
+        if (queuedAtNanos.isEmpty()) return;
+        Long queuedAt = queuedAtNanos.remove(order.getOrderId());
+        if (queuedAt == null) return;
+
+        OrderQueueEvent event = new OrderQueueEvent();
+        if (event.shouldCommit()) {
+            event.orderId = order.getOrderId();
+            event.queueTime = System.nanoTime() - queuedAt;
+            event.cancelled = cancelled;
+            event.commit();
+        }
+    }
+
+    /**
+     * Returns the bus that order created, delivered and cancelled events are published on.
+     * Handlers added to it run on their own threads. One added with OverflowPolicy.block()
+     * holds up the queue once it is a full ring behind, so use it only for handlers that
+     * must see every event, such as accounting and exports.
+     *
+     * @return The order event bus.
+     */
+    public static OrderEventBus getEventBus() {
+        return events;
+    }
+
+    /**
+     * Prompts for an order id and prints its estimated ready and delivery times.
+     */
+    private static void checkEta() {
+        String input = readValidatedInput("Order ID: ", 1, true);
+        printEta(Long.parseLong(input));
+    }
+
+    /**
+     * Prints an order's estimated ready and delivery times.
+     *
+     * @param orderId The id of the order.
+     */
+    private static void printEta(long orderId) {
+        long now = System.currentTimeMillis();
+        OrderEta eta = getEta(orderId);
+        if (eta == null) {
+            System.out.println("No pending order with that ID.");
+        } else {
+            System.out.println("Order " + orderId + ": ready in about " + eta.minutesUntilReady(now)
+                    + " minutes, delivered in about " + eta.minutesUntilDelivery(now) + " minutes.");
+        }
+    }
+
+    /**
+     * Estimates when a pending order will be ready and delivered, from the prep time of the
+     * orders ahead of it and the kitchen's observed speed.
+     *
+     * @param orderId The id of the order.
+     * @return The estimate, or null if no pending order has that id.
+     */
+    public static OrderEta getEta(long orderId) {
+        return etas.estimate(orderId, System.currentTimeMillis());
+    }
+
+    /**
+     * Prompts for part of a customer name or street and lists the matching orders.
+     */
+    private static void searchOrders() {
+        System.out.print("Search by name or address: ");
+        String query = scanner.nextLine().trim();
+
+        ArrayList<OrderSearchIndex.Hit> hits = searchOrders(query, 20);
+        if (hits.isEmpty()) {
+            System.out.println("No matching orders.");
+        } else {
+            for (OrderSearchIndex.Hit hit : hits) {
+                System.out.println(hit);
+            }
+        }
+    }
+
+    /**
+     * Finds pending and recently delivered orders by partial or slightly misspelt
+     * customer name or address words.
+     *
+     * @param query The words to search for.
+     * @param limit The most orders to return.
+     * @return The matching orders, pending first.
+     */
+    public static ArrayList<OrderSearchIndex.Hit> searchOrders(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    /**
+     * Returns order and revenue totals for the last 5, 15 and 60 minutes, for a dashboard
+     * to poll. Orders are counted when they are queued and taken off again if cancelled.
+     *
+     * @return The snapshots, shortest window first.
+     */
+    public static RevenueSnapshot[] getRevenueSnapshot() {
+        return revenue.snapshot();
+    }
+
+    /**
+     * Prints the recent order and revenue rates.
+     */
+    private static void printSalesSummary() {
+        System.out.println("Sales:");
+        for (RevenueSnapshot window : getRevenueSnapshot()) {
+            System.out.println(window);
+        }
+        long missed = events.getDropped();
+        if (missed > 0) {
+            System.out.println("Warning: event handlers have missed " + missed + " order events.");
+        }
+    }
+
+    /**
+     * Quotes every pending order against the current menu, for example after a price change.
+     * The queue is locked only while the pending orders are copied out; queued orders are not
+     * edited, so they can be quoted in parallel after the lock is released.
+     *
+     * @return The quotes and the total change.
+     */
+    public static RepricingReport repricePendingOrders() {
+        ArrayList<Order> pending = new ArrayList<>();
+        synchronized (orders) {
             for (Order o : orders) {
-                System.out.println(o);
-                System.out.println("----------");
+                pending.add(o);
+            }
+        }
+        return repricer.reprice(pending);
+    }
+
+    /**
+     * Prints all current orders in the order list.
+     */
+    private static void printAllOrders() {
+        synchronized (orders) {
+            if (orders.isEmpty()) {
+                System.out.println("No current orders.");
+            } else {
+                System.out.println("Orders:");
+                for (Order o : orders) {
+                    System.out.println(o);
+                    System.out.println("----------");
+                }
             }
         }
     }
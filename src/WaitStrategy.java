@@ -0,0 +1,44 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How an OrderEventBus handler thread waits when it has caught up with the publishers.
+ * BUSY_SPIN  – lowest latency, but keeps a core fully busy.
+ * YIELDING   – spins briefly, then yields the core to other threads.
+ * SLEEPING   – spins and yields briefly, then parks; cheapest when events are sparse.
+ *
+ * @author Nashmia Shakeel
+ * @version 1.0
+ */
+public enum WaitStrategy {
+    BUSY_SPIN {
+        @Override
+        void idle(int attempt) {
+            Thread.onSpinWait();
+        }
+    },
+    YIELDING {
+        @Override
+        void idle(int attempt) {
+            if (attempt < SPIN_TRIES) Thread.onSpinWait();
+            else Thread.yield();
+        }
+    },
+    SLEEPING {
+        @Override
+        void idle(int attempt) {
+            if (attempt < SPIN_TRIES) Thread.onSpinWait();
+            else if (attempt < SPIN_TRIES * 2) Thread.yield();
+            else LockSupport.parkNanos(SLEEP_NANOS);
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final long SLEEP_NANOS = 100_000; // 0.1 ms
+
+    /**
+     * Waits once.
+     *
+     * @param attempt how many times in a row the handler has found nothing new, starting at 0
+     */
+    abstract void idle(int attempt);
+}